@@ -0,0 +1,68 @@
+package tourGuide.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import rewardCentral.RewardCentral;
+import tourGuide.geo.GeoMath;
+import tourGuide.geo.GeoPoint;
+import tourGuide.service.RewardsService;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class DistanceBenchmark {
+
+	private RewardsService rewardsService;
+	private Attraction attraction;
+	private GeoPoint attractionPoint;
+	private Location[] locations;
+	private int next;
+
+	@Setup
+	public void setUp() {
+		StubGpsUtil gpsUtil = new StubGpsUtil(26, 42);
+		rewardsService = new RewardsService(gpsUtil, new StubRewardCentral());
+		attraction = rewardsService.getAttractionCatalog().getAttractions().get(0);
+		attractionPoint = GeoPoint.of(attraction);
+		Random random = new Random(7);
+		locations = new Location[1024];
+		for (int i = 0; i < locations.length; i++) {
+			locations[i] = StubGpsUtil.randomLocation(random);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		rewardsService.shutdown();
+	}
+
+	@Benchmark
+	public double getDistance() {
+		return rewardsService.getDistance(attraction, nextLocation());
+	}
+
+	@Benchmark
+	public boolean isWithinAttractionProximity() {
+		return rewardsService.isWithinAttractionProximity(attraction, nextLocation());
+	}
+
+	@Benchmark
+	public double haversineDistance() {
+		return GeoMath.haversineDistanceInMiles(attraction, nextLocation());
+	}
+
+	@Benchmark
+	public double precomputedAttractionDistance() {
+		return attractionPoint.distanceInMiles(GeoPoint.of(nextLocation()));
+	}
+
+	private Location nextLocation() {
+		return locations[next++ & (locations.length - 1)];
+	}
+
+}
@@ -0,0 +1,63 @@
+package tourGuide.benchmark;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.jsoniter.output.JsonStream;
+
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import tourGuide.dto.NearbyAttractionDTO;
+import tourGuide.helper.InternalTestHelper;
+import tourGuide.helper.JsonEncoders;
+import tourGuide.model.User;
+import tourGuide.service.RewardsService;
+import tourGuide.service.TourGuideService;
+
+/**
+ * The /getNearbyAttractions path without the latency of the external libraries: ranking plus the JSON response
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class NearbyAttractionsBenchmark {
+
+	@Param({"26", "10000"})
+	public int attractionCount;
+
+	private TourGuideService tourGuideService;
+	private List<NearbyAttractionDTO> nearbyAttractions;
+
+	@Setup
+	public void setUp() {
+		JsonEncoders.register();
+		InternalTestHelper.setInternalUserNumber(0);
+		RewardsService rewardsService = new RewardsService(new StubGpsUtil(attractionCount, 42), new StubRewardCentral());
+		tourGuideService = new TourGuideService(new StubGpsUtil(0, 42), rewardsService);
+
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		user.addToVisitedLocations(new VisitedLocation(user.getUserId(), new Location(33.8, -117.9), new Date()));
+		tourGuideService.addUser(user);
+		nearbyAttractions = tourGuideService.getNearByAttractions("jon");
+	}
+
+	@TearDown
+	public void tearDown() {
+		tourGuideService.stopTrackingUsersAndCompleteTasks();
+	}
+
+	@Benchmark
+	public List<NearbyAttractionDTO> getNearByAttractions() {
+		return tourGuideService.getNearByAttractions("jon");
+	}
+
+	@Benchmark
+	public String serializeNearbyAttractions() {
+		return JsonStream.serialize(nearbyAttractions);
+	}
+
+}
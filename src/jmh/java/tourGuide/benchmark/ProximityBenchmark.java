@@ -0,0 +1,71 @@
+package tourGuide.benchmark;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import tourGuide.attraction.AttractionDistance;
+import tourGuide.attraction.AttractionIndex;
+import tourGuide.attraction.GeofenceIndex;
+import tourGuide.service.RewardsService;
+
+import static tourGuide.TourGuideConfiguration.DEFAULT_PROXIMITY_BUFFER;
+
+/**
+ * Searches done by calculateRewards (fences containing a visited location) and getNearByAttractions (closest five)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class ProximityBenchmark {
+
+	@Param({"26", "10000"})
+	public int attractionCount;
+
+	private RewardsService rewardsService;
+	private AttractionIndex attractionIndex;
+	private GeofenceIndex geofences;
+	private Location[] locations;
+	private int next;
+
+	@Setup
+	public void setUp() {
+		rewardsService = new RewardsService(new StubGpsUtil(attractionCount, 42), new StubRewardCentral());
+		attractionIndex = rewardsService.getAttractionCatalog().getSnapshot().getIndex();
+		geofences = rewardsService.getAttractionCatalog().getSnapshot().getGeofences(DEFAULT_PROXIMITY_BUFFER);
+		Random random = new Random(7);
+		locations = new Location[1024];
+		for (int i = 0; i < locations.length; i++) {
+			locations[i] = StubGpsUtil.randomLocation(random);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		rewardsService.shutdown();
+	}
+
+	@Benchmark
+	public List<AttractionDistance> withinProximityBuffer() {
+		return attractionIndex.withinRadius(nextLocation(), DEFAULT_PROXIMITY_BUFFER);
+	}
+
+	@Benchmark
+	public List<Attraction> geofencesContaining() {
+		return geofences.fencesContaining(nextLocation());
+	}
+
+	@Benchmark
+	public List<AttractionDistance> nearestFive() {
+		return attractionIndex.nearestK(nextLocation(), 5);
+	}
+
+	private Location nextLocation() {
+		return locations[next++ & (locations.length - 1)];
+	}
+
+}
@@ -0,0 +1,44 @@
+package tourGuide.benchmark;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import gpsUtil.GpsUtil;
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+
+/**
+ * GpsUtil without rate limiter nor latency, returning the same attractions for a given seed
+ */
+public class StubGpsUtil extends GpsUtil {
+
+	private final List<Attraction> attractions = new ArrayList<>();
+	private final Random random;
+
+	public StubGpsUtil(int attractionCount, long seed) {
+		random = new Random(seed);
+		for (int i = 0; i < attractionCount; i++) {
+			Location location = randomLocation(random);
+			attractions.add(new Attraction("attraction" + i, "city" + i, "state", location.latitude, location.longitude));
+		}
+	}
+
+	@Override
+	public List<Attraction> getAttractions() {
+		return new ArrayList<>(attractions);
+	}
+
+	@Override
+	public synchronized VisitedLocation getUserLocation(UUID userId) {
+		return new VisitedLocation(userId, randomLocation(random), new Date());
+	}
+
+	static Location randomLocation(Random random) {
+		return new Location(-85.05112878 + random.nextDouble() * 170.10225756, -180 + random.nextDouble() * 360);
+	}
+
+}
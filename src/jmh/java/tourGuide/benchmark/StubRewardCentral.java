@@ -0,0 +1,17 @@
+package tourGuide.benchmark;
+
+import java.util.UUID;
+
+import rewardCentral.RewardCentral;
+
+/**
+ * RewardCentral without latency, the points only depend on the ids
+ */
+public class StubRewardCentral extends RewardCentral {
+
+	@Override
+	public int getAttractionRewardPoints(UUID attractionId, UUID userId) {
+		return 1 + Math.floorMod(attractionId.hashCode() ^ userId.hashCode(), 1000);
+	}
+
+}
@@ -0,0 +1,54 @@
+package tourGuide.benchmark;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+import tourGuide.model.User;
+import tourGuide.model.UserReward;
+
+/**
+ * Adding a reward to a user who already has rewardCount of them, half of the time for an attraction already rewarded
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class UserRewardBenchmark {
+
+	@Param({"10", "1000"})
+	public int rewardCount;
+
+	private List<Attraction> attractions;
+	private User user;
+	private UserReward duplicatedReward;
+	private UserReward newReward;
+
+	@Setup(Level.Iteration)
+	public void setUp() {
+		attractions = new StubGpsUtil(rewardCount + 1, 42).getAttractions();
+		user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		VisitedLocation visitedLocation = new VisitedLocation(user.getUserId(), attractions.get(0), new Date());
+		for (int i = 0; i < rewardCount; i++) {
+			user.addUserReward(new UserReward(visitedLocation, attractions.get(i), i));
+		}
+		duplicatedReward = new UserReward(visitedLocation, attractions.get(rewardCount / 2), 1);
+		newReward = new UserReward(visitedLocation, attractions.get(rewardCount), 1);
+	}
+
+	@Benchmark
+	public User addDuplicatedReward() {
+		user.addUserReward(duplicatedReward);
+		return user;
+	}
+
+	@Benchmark
+	public boolean hasRewardForNewAttraction() {
+		return user.hasRewardFor(newReward.attraction);
+	}
+
+}
@@ -1,10 +1,26 @@
 package tourGuide;
 
+import java.nio.file.Paths;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import gpsUtil.GpsUtil;
 import rewardCentral.RewardCentral;
+import tourGuide.concurrent.AimdConcurrencyLimiter;
+import tourGuide.concurrent.Backend;
+import tourGuide.concurrent.ConcurrencyLimiter;
+import tourGuide.concurrent.ExecutionMode;
+import tourGuide.concurrent.RejectionPolicy;
+import tourGuide.concurrent.WorkQueuePolicy;
+import tourGuide.helper.InternalTestHelper;
+import tourGuide.persistence.LocationJournal;
+import tourGuide.persistence.MappedLocationJournal;
 
 @Configuration
 public class TourGuideConfiguration {
@@ -15,9 +31,128 @@ public class TourGuideConfiguration {
 	public static final int DEFAULT_PROXIMITY_BUFFER = 10;
 	public static final int ATTRACTION_PROXIMITY_RANGE = 200;
 
+	// Attractions are cached and reloaded from GpsUtil in the background
+	public static final long ATTRACTION_CATALOG_REFRESH_MINUTES = 60;
+	public static final double ATTRACTION_INDEX_CELL_DEGREES = 1.0;
+
+	// Larger fences are checked against every location instead of being put in the grid cells they cover
+	public static final int GEOFENCE_MAX_CELLS_PER_FENCE = 256;
+
+	// Blocking calls run on virtual threads, unless tourguide.execution-mode=PLATFORM
+	public static final ExecutionMode DEFAULT_EXECUTION_MODE = ExecutionMode.VIRTUAL;
+
+	// Number of Tracker workers, each pacing its share of the users over the polling interval
+	public static final int TRACKER_SHARDS = 4;
+
+	// Location requests of the Tracker waiting or running at once, health is DEGRADED over the threshold
+	public static final int TRACKING_QUEUE_CAPACITY = 10_000;
+	public static final WorkQueuePolicy TRACKING_QUEUE_POLICY = WorkQueuePolicy.COALESCE;
+	public static final int TRACKING_QUEUE_DEGRADED_THRESHOLD = 8_000;
+
+	// Pool running the location requests of the Tracker and the asynchronous requests of the users.
+	// In VIRTUAL mode every Tracker request can run at once, the backend limits doing the pacing.
+	public static final int TRACKING_PLATFORM_THREADS = 600;
+	public static final int TRACKING_VIRTUAL_THREADS = TRACKING_QUEUE_CAPACITY;
+	public static final int TRACKING_EXECUTOR_QUEUE_CAPACITY = 20_000;
+	public static final RejectionPolicy TRACKING_EXECUTOR_REJECTION_POLICY = RejectionPolicy.CALLER_RUNS;
+	public static final int TRACKING_EXECUTOR_DEGRADED_THRESHOLD = 16_000;
+
+	// Calls in progress for each external library, the limit grows while the latency holds and backs off when it degrades
+	public static final int BACKEND_INITIAL_CONCURRENCY = 20;
+	public static final int BACKEND_MIN_CONCURRENCY = 1;
+	public static final double BACKEND_BACKOFF_RATIO = 0.9;
+	public static final double BACKEND_LATENCY_TOLERANCE = 2.0;
+	// Upper bounds of the adaptive limits
+	public static final int GPS_UTIL_CONCURRENCY_LIMIT = 1000;
+	public static final int REWARD_CENTRAL_CONCURRENCY_LIMIT = 1000;
+	public static final int TRIP_PRICER_CONCURRENCY_LIMIT = 100;
+
+	// Shared pool for the RewardCentral lookups, of platform or virtual threads depending on the execution mode
+	public static final int REWARD_LOOKUP_PARALLELISM = 1000;
+	public static final int REWARD_LOOKUP_QUEUE_CAPACITY = 10_000;
+	public static final RejectionPolicy REWARD_LOOKUP_REJECTION_POLICY = RejectionPolicy.CALLER_RUNS;
+
+	// Users with new locations go through a ring per worker, the rewards are then evaluated by batches
+	public static final int LOCATION_PIPELINE_WORKERS = 4;
+	public static final int LOCATION_PIPELINE_RING_CAPACITY = 16_384;
+	public static final int LOCATION_PIPELINE_BATCH_SIZE = 256;
+
+	// Bulk recomputation of the rewards, started from /actuator/rewardRecomputation, with its RewardCentral lookups paced
+	public static final int REWARD_RECOMPUTATION_PARALLELISM = 8;
+	public static final int REWARD_RECOMPUTATION_BATCH_SIZE = 64;
+	public static final double REWARD_RECOMPUTATION_LOOKUPS_PER_SECOND = 5_000;
+
+	// Reward points already given by RewardCentral are kept in memory
+	public static final int REWARD_POINTS_CACHE_MAXIMUM_SIZE = 500_000;
+	public static final long REWARD_POINTS_CACHE_TTL_MINUTES = 60;
+
+	// Trip deals are asked again to TripPricer after this time, even if the request did not change
+	public static final long TRIP_DEALS_CACHE_TTL_MINUTES = 10;
+
+	// Users are stored in this many concurrent maps, which bulk jobs can go through in parallel
+	public static final int USER_REGISTRY_SHARDS = 16;
+
+	// Number of visited locations kept for each user, older ones are overwritten
+	public static final int LOCATION_HISTORY_CAPACITY = 100;
+
+	// Older stored locations are still returned, but GpsUtil is asked for a new one in the background
+	public static final long LOCATION_FRESHNESS_TTL_SECONDS = 10 * 60;
+
+	// Location journal, enabled with tourguide.journal.enabled=true
+	public static final int JOURNAL_SEGMENT_RECORDS = 1 << 20;
+	public static final int JOURNAL_QUEUE_CAPACITY = 100_000;
+	public static final long JOURNAL_COMPACTION_MINUTES = 30;
+
+	// Time the asynchronous endpoints wait for their result before answering 504 Gateway Timeout
+	public static final long GET_LOCATION_TIMEOUT_SECONDS = 5;
+	public static final long GET_NEARBY_ATTRACTIONS_TIMEOUT_SECONDS = 10;
+	public static final long GET_TRIP_DEALS_TIMEOUT_SECONDS = 10;
+
+	// Bytes of JSON buffered before /getAllCurrentLocations sends a chunk of the response
+	public static final int CURRENT_LOCATIONS_STREAM_BUFFER_BYTES = 8192;
+	// Headers of a /getAllCurrentLocations page
+	public static final String NEXT_CURSOR_HEADER = "Next-Cursor";
+	public static final String USERS_WITHOUT_LOCATION_HEADER = "Users-Without-Location";
+
 	// Test mode
 	public static final boolean IS_TEST_MODE_ENABLED = true;
 
+	public static Map<Backend, Integer> getBackendConcurrencyLimits() {
+		Map<Backend, Integer> limits = new EnumMap<>(Backend.class);
+		limits.put(Backend.GPS_UTIL, GPS_UTIL_CONCURRENCY_LIMIT);
+		limits.put(Backend.REWARD_CENTRAL, REWARD_CENTRAL_CONCURRENCY_LIMIT);
+		limits.put(Backend.TRIP_PRICER, TRIP_PRICER_CONCURRENCY_LIMIT);
+		return limits;
+	}
+
+	public static ConcurrencyLimiter newBackendLimiter(Backend backend) {
+		return new AimdConcurrencyLimiter(BACKEND_INITIAL_CONCURRENCY, BACKEND_MIN_CONCURRENCY,
+				getBackendConcurrencyLimits().get(backend), BACKEND_BACKOFF_RATIO, BACKEND_LATENCY_TOLERANCE);
+	}
+
+	@Bean
+	public ExecutionMode getExecutionMode(@Value("${tourguide.execution-mode:VIRTUAL}") ExecutionMode executionMode) {
+		return executionMode;
+	}
+
+	/**
+	 * The journal knows the users by id: internal users keep their ids across restarts only with a fixed seed or a snapshot
+	 */
+	@Autowired
+	public void configureInternalUsers(@Value("${tourguide.internal-users.seed:#{null}}") Long seed,
+									   @Value("${tourguide.internal-users.snapshot:}") String snapshot) {
+		if (seed != null) InternalTestHelper.setInternalUserSeed(seed);
+		if (!snapshot.isEmpty()) InternalTestHelper.setInternalUserSnapshot(Paths.get(snapshot));
+	}
+
+	@Bean(destroyMethod = "close")
+	public LocationJournal getLocationJournal(@Value("${tourguide.journal.enabled:false}") boolean enabled,
+											  @Value("${tourguide.journal.directory:journal}") String directory) {
+		if (!enabled) return LocationJournal.DISABLED;
+		return MappedLocationJournal.open(Paths.get(directory), JOURNAL_SEGMENT_RECORDS, JOURNAL_QUEUE_CAPACITY,
+				LOCATION_HISTORY_CAPACITY, JOURNAL_COMPACTION_MINUTES, TimeUnit.MINUTES);
+	}
+
 	// Beans to inject external libraries in services
 
 	@Bean
@@ -1,24 +1,38 @@
 package tourGuide;
 
-import java.util.List;
-import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
-import gpsUtil.location.Location;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.jsoniter.output.JsonStream;
 
 import gpsUtil.location.VisitedLocation;
+import tourGuide.dto.CurrentLocationsPage;
+import tourGuide.helper.JsonEncoders;
 import tourGuide.service.TourGuideService;
 import tourGuide.model.User;
-import tripPricer.Provider;
+
+import static tourGuide.TourGuideConfiguration.*;
 
 @RestController
 public class TourGuideController {
 
+	static {
+		JsonEncoders.register();
+	}
+
 	@Autowired
 	TourGuideService tourGuideService;
 	
@@ -28,14 +42,17 @@ public class TourGuideController {
     }
     
     @RequestMapping("/getLocation") 
-    public String getLocation(@RequestParam String userName) {
-    	VisitedLocation visitedLocation = tourGuideService.getUserLocation(getUser(userName));
-		return JsonStream.serialize(visitedLocation.location);
+    public CompletableFuture<String> getLocation(@RequestParam String userName) {
+    	return tourGuideService.getUserLocationAsync(getUser(userName))
+    			.thenApply(visitedLocation -> JsonStream.serialize(visitedLocation.location))
+    			.orTimeout(GET_LOCATION_TIMEOUT_SECONDS, TimeUnit.SECONDS);
     }
     
     @RequestMapping("/getNearbyAttractions")
-    public String getNearbyAttractions(@RequestParam String userName) {
-    	return JsonStream.serialize(tourGuideService.getNearByAttractions(userName));
+    public CompletableFuture<String> getNearbyAttractions(@RequestParam String userName) {
+    	return tourGuideService.getNearByAttractionsAsync(userName)
+    			.thenApply(JsonStream::serialize)
+    			.orTimeout(GET_NEARBY_ATTRACTIONS_TIMEOUT_SECONDS, TimeUnit.SECONDS);
     }
     
     @RequestMapping("/getRewards") 
@@ -52,16 +69,35 @@ public class TourGuideController {
     //        "019b04a9-067a-4c76-8817-ee75088c3822": {"longitude":-48.188821,"latitude":74.84371}
     //        ...
     //     }
+    // The mapping is written to the response as it is built.
+    // With a limit, only a page of limit users in user id order is returned. Users without a stored location
+    // count against the limit: their number is in the Users-Without-Location header, and the Next-Cursor header,
+    // absent on the last page, is the value of the after parameter for the next page.
     @RequestMapping("/getAllCurrentLocations")
-    public String getAllCurrentLocations() {
-        Map<String, Location> locations = tourGuideService.getAllCurrentLocations();
-        return JsonStream.serialize(locations);
+    public ResponseEntity<StreamingResponseBody> getAllCurrentLocations(
+            @RequestParam(required = false) UUID after,
+            @RequestParam(required = false) Integer limit) {
+        if (limit == null) {
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON)
+                    .body(locationsBody(tourGuideService.getCurrentLocations()::iterator));
+        }
+        if (limit < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        CurrentLocationsPage page = tourGuideService.getCurrentLocations(after, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON)
+                .header(USERS_WITHOUT_LOCATION_HEADER, String.valueOf(page.getUsersWithoutLocation()));
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor().toString());
+        }
+        return response.body(locationsBody(page.getLocations()));
     }
     
     @RequestMapping("/getTripDeals")
-    public String getTripDeals(@RequestParam String userName) {
-    	List<Provider> providers = tourGuideService.getTripDeals(getUser(userName));
-    	return JsonStream.serialize(providers);
+    public CompletableFuture<String> getTripDeals(@RequestParam String userName) {
+    	return tourGuideService.getTripDealsAsync(getUser(userName))
+    			.thenApply(JsonStream::serialize)
+    			.orTimeout(GET_TRIP_DEALS_TIMEOUT_SECONDS, TimeUnit.SECONDS);
     }
 
     @RequestMapping(value = "/setUserPreferences")
@@ -75,6 +111,29 @@ public class TourGuideController {
         return JsonStream.serialize("Preferences updated" );
     }
     
+    // The backend calls keep running after a timeout, so their results still end up in the caches
+    @ExceptionHandler(TimeoutException.class)
+    @ResponseStatus(HttpStatus.GATEWAY_TIMEOUT)
+    public String timeout() {
+        return JsonStream.serialize("Request timed out");
+    }
+
+    private StreamingResponseBody locationsBody(Iterable<VisitedLocation> visitedLocations) {
+        return outputStream -> {
+            JsonStream stream = new JsonStream(outputStream, CURRENT_LOCATIONS_STREAM_BUFFER_BYTES);
+            stream.writeObjectStart();
+            boolean first = true;
+            for (VisitedLocation visitedLocation : visitedLocations) {
+                if (!first) stream.writeMore();
+                first = false;
+                stream.writeObjectField(visitedLocation.userId.toString());
+                stream.writeVal(visitedLocation.location);
+            }
+            stream.writeObjectEnd();
+            stream.flush();
+        };
+    }
+
     private User getUser(String userName) {
     	return tourGuideService.getUser(userName);
     }
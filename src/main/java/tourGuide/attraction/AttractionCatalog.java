@@ -0,0 +1,105 @@
+package tourGuide.attraction;
+
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gpsUtil.GpsUtil;
+import gpsUtil.location.Attraction;
+import tourGuide.concurrent.NamedThreadFactory;
+
+/**
+ * Keeps the attractions of GpsUtil in memory so that the slow remote call is only done
+ * when loading the catalog and when refreshing it in the background.
+ * Readers get the current snapshot without locking.
+ */
+public class AttractionCatalog {
+	private final Logger logger = LoggerFactory.getLogger(AttractionCatalog.class);
+	private final GpsUtil gpsUtil;
+	private final ScheduledExecutorService scheduler =
+			Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("attraction-catalog-refresh"));
+	private volatile AttractionSnapshot snapshot;
+
+	private AttractionCatalog(GpsUtil gpsUtil) {
+		this.gpsUtil = gpsUtil;
+		this.snapshot = new AttractionSnapshot(1, gpsUtil.getAttractions());
+		logger.debug("Attraction catalog loaded with {} attractions", snapshot.size());
+	}
+
+	/**
+	 * Loads the attractions, then schedules their refreshes
+	 * @param refreshInterval 0 or less to never refresh in the background
+	 */
+	public static AttractionCatalog load(GpsUtil gpsUtil, long refreshInterval, TimeUnit timeUnit) {
+		AttractionCatalog catalog = new AttractionCatalog(gpsUtil);
+		if (refreshInterval > 0) {
+			catalog.scheduler.scheduleWithFixedDelay(catalog::refreshQuietly, refreshInterval, refreshInterval, timeUnit);
+		}
+		return catalog;
+	}
+
+	public AttractionSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	public List<Attraction> getAttractions() {
+		return snapshot.getAttractions();
+	}
+
+	public long getVersion() {
+		return snapshot.getVersion();
+	}
+
+	/**
+	 * Reloads the attractions from GpsUtil.
+	 * The version is only increased when the attractions have changed. Attractions that did not change
+	 * keep the same instance (and attractionId) as in the previous snapshot.
+	 * @return true if a new snapshot was published
+	 */
+	public synchronized boolean refresh() {
+		AttractionSnapshot current = snapshot;
+		Map<String, Attraction> previous = new HashMap<>();
+		for (Attraction attraction : current.getAttractions()) {
+			previous.put(keyOf(attraction), attraction);
+		}
+
+		List<Attraction> loaded = gpsUtil.getAttractions();
+		List<Attraction> merged = new ArrayList<>(loaded.size());
+		boolean changed = loaded.size() != current.size();
+		for (Attraction attraction : loaded) {
+			Attraction existing = previous.get(keyOf(attraction));
+			if (existing == null) {
+				changed = true;
+				merged.add(attraction);
+			} else {
+				merged.add(existing);
+			}
+		}
+		if (!changed) return false;
+
+		snapshot = new AttractionSnapshot(current.getVersion() + 1, merged);
+		logger.debug("Attraction catalog updated to version {} with {} attractions", snapshot.getVersion(), snapshot.size());
+		return true;
+	}
+
+	public void stopRefreshing() {
+		scheduler.shutdownNow();
+	}
+
+	private void refreshQuietly() {
+		try {
+			refresh();
+		} catch (RuntimeException e) {
+			logger.warn("Could not refresh the attraction catalog, keeping version {}", snapshot.getVersion(), e);
+		}
+	}
+
+	private static String keyOf(Attraction attraction) {
+		return attraction.attractionName + '|' + attraction.latitude + '|' + attraction.longitude;
+	}
+
+}
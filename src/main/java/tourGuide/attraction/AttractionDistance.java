@@ -0,0 +1,18 @@
+package tourGuide.attraction;
+
+import gpsUtil.location.Attraction;
+
+/**
+ * An attraction found by the index, with its distance in miles to the searched location
+ */
+public final class AttractionDistance {
+
+	public final Attraction attraction;
+	public final double distanceInMiles;
+
+	public AttractionDistance(Attraction attraction, double distanceInMiles) {
+		this.attraction = attraction;
+		this.distanceInMiles = distanceInMiles;
+	}
+
+}
@@ -0,0 +1,94 @@
+package tourGuide.attraction;
+
+import java.util.*;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import tourGuide.geo.BoundingBox;
+import tourGuide.geo.GeoGrid;
+import tourGuide.geo.GeoMath;
+import tourGuide.geo.GeoPoint;
+
+/**
+ * Grid of latitude/longitude cells over the attractions, so that radius and nearest-K searches
+ * only compute distances to the attractions found in the cells around the searched location.
+ * The trigonometry of every attraction is computed when the index is built, and candidates outside
+ * the bounding box of the search are rejected before any distance is computed.
+ * The index is read-only once built and can be shared between threads.
+ */
+public class AttractionIndex {
+
+	private final GeoGrid grid;
+	private final List<IndexedAttraction> attractions = new ArrayList<>();
+	private final Map<Long, List<IndexedAttraction>> cells = new HashMap<>();
+
+	public AttractionIndex(List<Attraction> attractions, double cellDegrees) {
+		this.grid = new GeoGrid(cellDegrees);
+		for (Attraction attraction : attractions) {
+			IndexedAttraction indexed = new IndexedAttraction(attraction);
+			this.attractions.add(indexed);
+			cells.computeIfAbsent(grid.cellOf(attraction.latitude, attraction.longitude), k -> new ArrayList<>()).add(indexed);
+		}
+	}
+
+	/**
+	 * Attractions at no more than the given distance of the location, in no particular order
+	 */
+	public List<AttractionDistance> withinRadius(Location location, double miles) {
+		List<AttractionDistance> result = new ArrayList<>();
+		BoundingBox box = BoundingBox.around(location, miles);
+		GeoPoint point = GeoPoint.of(location);
+		double minCosine = GeoMath.minCosineOfDistance(miles);
+		for (IndexedAttraction candidate : candidates(box)) {
+			if (!box.contains(candidate.point.latitude, candidate.point.longitude)) continue;
+			double cosine = point.cosineOfAngleTo(candidate.point);
+			if (cosine < minCosine) continue;
+			double distance = GeoMath.distanceOfCosine(cosine);
+			if (!(distance > miles)) {
+				result.add(new AttractionDistance(candidate.attraction, distance));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * The k closest attractions to the location, sorted by distance - no matter how far away they are
+	 */
+	public List<AttractionDistance> nearestK(Location location, int k) {
+		int count = Math.min(k, attractions.size());
+		if (count <= 0) return Collections.emptyList();
+
+		double radius = grid.getCellDegrees() * GeoMath.MILES_PER_DEGREE;
+		while (true) {
+			List<AttractionDistance> found = withinRadius(location, radius);
+			if (found.size() >= count || radius >= GeoMath.HALF_EARTH_CIRCUMFERENCE_MILES) {
+				found.sort(Comparator.comparingDouble(match -> match.distanceInMiles));
+				return new ArrayList<>(found.subList(0, count));
+			}
+			radius *= 4;
+		}
+	}
+
+	private Collection<IndexedAttraction> candidates(BoundingBox box) {
+		GeoGrid.CellRange range = grid.cellsOverlapping(box);
+		if (range.count() >= cells.size()) return attractions; // cheaper to check every attraction
+
+		List<IndexedAttraction> result = new ArrayList<>();
+		range.forEach(key -> {
+			List<IndexedAttraction> cell = cells.get(key);
+			if (cell != null) result.addAll(cell);
+		});
+		return result;
+	}
+
+	private static final class IndexedAttraction {
+		final Attraction attraction;
+		final GeoPoint point;
+
+		IndexedAttraction(Attraction attraction) {
+			this.attraction = attraction;
+			this.point = GeoPoint.of(attraction);
+		}
+	}
+
+}
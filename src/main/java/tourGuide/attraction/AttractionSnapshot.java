@@ -0,0 +1,62 @@
+package tourGuide.attraction;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import gpsUtil.location.Attraction;
+
+import static tourGuide.TourGuideConfiguration.*;
+
+/**
+ * Immutable view of the attraction catalog at a given version.
+ * Readers can hold on to a snapshot for as long as they need, it never changes.
+ */
+public final class AttractionSnapshot {
+
+	private final long version;
+	private final List<Attraction> attractions;
+	private final Map<UUID, Attraction> attractionsById;
+	private final AttractionIndex index;
+	private final Map<Double, GeofenceIndex> geofences = new ConcurrentHashMap<>();
+
+	AttractionSnapshot(long version, List<Attraction> attractions) {
+		this.version = version;
+		this.attractions = Collections.unmodifiableList(new ArrayList<>(attractions));
+		Map<UUID, Attraction> byId = new HashMap<>();
+		for (Attraction attraction : attractions) {
+			byId.put(attraction.attractionId, attraction);
+		}
+		this.attractionsById = Collections.unmodifiableMap(byId);
+		this.index = new AttractionIndex(this.attractions, ATTRACTION_INDEX_CELL_DEGREES);
+		getGeofences(DEFAULT_PROXIMITY_BUFFER);
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public List<Attraction> getAttractions() {
+		return attractions;
+	}
+
+	public Optional<Attraction> getAttraction(UUID attractionId) {
+		return Optional.ofNullable(attractionsById.get(attractionId));
+	}
+
+	public AttractionIndex getIndex() {
+		return index;
+	}
+
+	/**
+	 * Fences of the given radius around the attractions, built on first use for each radius
+	 */
+	public GeofenceIndex getGeofences(double radiusMiles) {
+		return geofences.computeIfAbsent(radiusMiles, radius ->
+				new GeofenceIndex(attractions, radius, ATTRACTION_INDEX_CELL_DEGREES, GEOFENCE_MAX_CELLS_PER_FENCE));
+	}
+
+	public int size() {
+		return attractions.size();
+	}
+
+}
@@ -0,0 +1,91 @@
+package tourGuide.attraction;
+
+import java.util.*;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import tourGuide.geo.BoundingBox;
+import tourGuide.geo.GeoGrid;
+import tourGuide.geo.GeoMath;
+import tourGuide.geo.GeoPoint;
+
+/**
+ * Reverse index from the grid cells to the attraction fences overlapping them, for one fence radius.
+ * Finding the fences around a location is a hash lookup of its cell plus a distance check for each fence
+ * of that cell. Fences covering more than maxCellsPerFence cells are checked for every location instead.
+ * The index is read-only once built and can be shared between threads.
+ */
+public class GeofenceIndex {
+
+	private final double radiusMiles;
+	private final GeoGrid grid;
+	private final double minCosine;
+	private final Map<Long, List<Fence>> cells = new HashMap<>();
+	private final List<Fence> everywhere = new ArrayList<>();
+
+	public GeofenceIndex(List<Attraction> attractions, double radiusMiles, double cellDegrees, int maxCellsPerFence) {
+		this.radiusMiles = radiusMiles;
+		this.grid = new GeoGrid(cellDegrees);
+		this.minCosine = GeoMath.minCosineOfDistance(radiusMiles);
+		for (Attraction attraction : attractions) {
+			addFence(new Fence(attraction), maxCellsPerFence);
+		}
+	}
+
+	/**
+	 * Attractions at no more than the radius of the location, in no particular order
+	 */
+	public List<Attraction> fencesContaining(Location location) {
+		List<Fence> candidates = cells.getOrDefault(grid.cellOf(location.latitude, location.longitude), Collections.emptyList());
+		if (candidates.isEmpty() && everywhere.isEmpty()) return Collections.emptyList();
+
+		GeoPoint point = GeoPoint.of(location);
+		List<Attraction> result = new ArrayList<>(2);
+		addContaining(point, candidates, result);
+		addContaining(point, everywhere, result);
+		return result;
+	}
+
+	public double getRadiusMiles() {
+		return radiusMiles;
+	}
+
+	/**
+	 * Number of cells overlapped by at least one fence
+	 */
+	public int getCellCount() {
+		return cells.size();
+	}
+
+	private void addContaining(GeoPoint point, List<Fence> fences, List<Attraction> result) {
+		for (Fence fence : fences) {
+			double cosine = point.cosineOfAngleTo(fence.center);
+			if (cosine < minCosine) continue;
+			double distance = GeoMath.distanceOfCosine(cosine);
+			if (!(distance > radiusMiles)) {
+				result.add(fence.attraction);
+			}
+		}
+	}
+
+	private void addFence(Fence fence, int maxCellsPerFence) {
+		BoundingBox box = BoundingBox.around(fence.attraction, radiusMiles);
+		GeoGrid.CellRange range = grid.cellsOverlapping(box);
+		if (box.coversAllLongitudes() || range.count() > maxCellsPerFence) {
+			everywhere.add(fence);
+			return;
+		}
+		range.forEach(key -> cells.computeIfAbsent(key, k -> new ArrayList<>(1)).add(fence));
+	}
+
+	private static final class Fence {
+		final Attraction attraction;
+		final GeoPoint center;
+
+		Fence(Attraction attraction) {
+			this.attraction = attraction;
+			this.center = GeoPoint.of(attraction);
+		}
+	}
+
+}
@@ -0,0 +1,117 @@
+package tourGuide.cache;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Remembers the reward points given by RewardCentral for each attraction and user.
+ * Entries expire after the time to live, and the oldest entries are evicted when the cache is full.
+ * Every stored entry has its node in the insertion queue. A node whose entry has since been replaced
+ * or removed is skipped when it reaches the head, and expired entries are removed from the head on each insertion.
+ */
+public class RewardPointsCache {
+
+	private final int maximumSize;
+	private final long timeToLiveNanos;
+	private final ConcurrentHashMap<RewardPointsKey, Entry> entries = new ConcurrentHashMap<>();
+	private final ConcurrentLinkedQueue<Node> insertionOrder = new ConcurrentLinkedQueue<>();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	public RewardPointsCache(int maximumSize, long timeToLive, TimeUnit timeUnit) {
+		this.maximumSize = maximumSize;
+		this.timeToLiveNanos = timeUnit.toNanos(timeToLive);
+	}
+
+	/**
+	 * Returns the cached points, or loads them and keeps them for the next calls
+	 */
+	public int get(UUID attractionId, UUID userId, IntSupplier loader) {
+		RewardPointsKey key = new RewardPointsKey(attractionId, userId);
+		long now = System.nanoTime();
+		Entry entry = entries.get(key);
+		if (entry != null) {
+			if (entry.expiresAt - now > 0) {
+				hits.increment();
+				return entry.points;
+			}
+			entries.remove(key, entry);
+		}
+		misses.increment();
+
+		int points = loader.getAsInt();
+		Entry loaded = new Entry(points, now + timeToLiveNanos);
+		entries.put(key, loaded);
+		insertionOrder.add(new Node(key, loaded));
+		removeExpiredEntries(now);
+		evictOldestEntries();
+		return points;
+	}
+
+	public void invalidateAll() {
+		// the queue first: an entry stored in between keeps its node, at worst a node is left without entry
+		insertionOrder.clear();
+		entries.clear();
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	public long getEvictionCount() {
+		return evictions.sum();
+	}
+
+	private void removeExpiredEntries(long now) {
+		Node oldest;
+		while ((oldest = insertionOrder.peek()) != null && oldest.entry.expiresAt - now < 0) {
+			if (insertionOrder.remove(oldest)) {
+				entries.remove(oldest.key, oldest.entry);
+			}
+		}
+	}
+
+	private void evictOldestEntries() {
+		while (entries.size() > maximumSize) {
+			Node oldest = insertionOrder.poll();
+			if (oldest == null) return;
+			if (entries.remove(oldest.key, oldest.entry)) {
+				evictions.increment();
+			}
+		}
+	}
+
+	private static final class Entry {
+		final int points;
+		final long expiresAt;
+
+		Entry(int points, long expiresAt) {
+			this.points = points;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	private static final class Node {
+		final RewardPointsKey key;
+		final Entry entry;
+
+		Node(RewardPointsKey key, Entry entry) {
+			this.key = key;
+			this.entry = entry;
+		}
+	}
+
+}
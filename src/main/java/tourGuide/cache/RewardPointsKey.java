@@ -0,0 +1,42 @@
+package tourGuide.cache;
+
+import java.util.UUID;
+
+/**
+ * Cache key made of the bits of the attraction and user ids, so no String has to be built for each lookup
+ */
+final class RewardPointsKey {
+
+	private final long attractionMostSignificantBits;
+	private final long attractionLeastSignificantBits;
+	private final long userMostSignificantBits;
+	private final long userLeastSignificantBits;
+
+	RewardPointsKey(UUID attractionId, UUID userId) {
+		this.attractionMostSignificantBits = attractionId.getMostSignificantBits();
+		this.attractionLeastSignificantBits = attractionId.getLeastSignificantBits();
+		this.userMostSignificantBits = userId.getMostSignificantBits();
+		this.userLeastSignificantBits = userId.getLeastSignificantBits();
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (!(o instanceof RewardPointsKey)) return false;
+		RewardPointsKey other = (RewardPointsKey) o;
+		return attractionMostSignificantBits == other.attractionMostSignificantBits
+				&& attractionLeastSignificantBits == other.attractionLeastSignificantBits
+				&& userMostSignificantBits == other.userMostSignificantBits
+				&& userLeastSignificantBits == other.userLeastSignificantBits;
+	}
+
+	@Override
+	public int hashCode() {
+		long hash = attractionMostSignificantBits;
+		hash = 31 * hash + attractionLeastSignificantBits;
+		hash = 31 * hash + userMostSignificantBits;
+		hash = 31 * hash + userLeastSignificantBits;
+		return (int) (hash ^ (hash >>> 32));
+	}
+
+}
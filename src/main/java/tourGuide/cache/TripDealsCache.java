@@ -0,0 +1,79 @@
+package tourGuide.cache;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import tripPricer.Provider;
+
+/**
+ * Remembers the last trip deals of each user with the fingerprint of the request that produced them.
+ * They are reused while the fingerprint is the same and the time to live has not elapsed, so a change
+ * of preferences or of the reward points total gets new deals from TripPricer.
+ */
+public class TripDealsCache {
+
+	private final long timeToLiveNanos;
+	private final ConcurrentHashMap<UUID, Entry> entries = new ConcurrentHashMap<>();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	public TripDealsCache(long timeToLive, TimeUnit timeUnit) {
+		this.timeToLiveNanos = timeUnit.toNanos(timeToLive);
+	}
+
+	/**
+	 * Returns the cached deals of the user if they were loaded for the same fingerprint,
+	 * or loads them and keeps them for the next calls
+	 */
+	public List<Provider> get(UUID userId, TripDealsFingerprint fingerprint, Supplier<List<Provider>> loader) {
+		long now = System.nanoTime();
+		Entry entry = entries.get(userId);
+		if (entry != null && entry.fingerprint.equals(fingerprint) && entry.expiresAt - now > 0) {
+			hits.increment();
+			return entry.providers;
+		}
+		misses.increment();
+
+		List<Provider> providers = Collections.unmodifiableList(loader.get());
+		entries.put(userId, new Entry(fingerprint, providers, now + timeToLiveNanos));
+		return providers;
+	}
+
+	public void invalidate(UUID userId) {
+		entries.remove(userId);
+	}
+
+	public void invalidateAll() {
+		entries.clear();
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	private static final class Entry {
+		final TripDealsFingerprint fingerprint;
+		final List<Provider> providers;
+		final long expiresAt;
+
+		Entry(TripDealsFingerprint fingerprint, List<Provider> providers, long expiresAt) {
+			this.fingerprint = fingerprint;
+			this.providers = providers;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+}
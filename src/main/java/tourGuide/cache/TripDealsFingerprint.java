@@ -0,0 +1,46 @@
+package tourGuide.cache;
+
+import java.util.Objects;
+
+import org.javamoney.moneta.Money;
+
+/**
+ * Inputs of a trip deals request: cached deals are only reused while these have not changed
+ */
+public final class TripDealsFingerprint {
+
+	private final int adults;
+	private final int children;
+	private final int nightsStay;
+	private final int rewardPointsTotal;
+	private final Money minPrice;
+	private final Money maxPrice;
+
+	public TripDealsFingerprint(int adults, int children, int nightsStay, int rewardPointsTotal, Money minPrice, Money maxPrice) {
+		this.adults = adults;
+		this.children = children;
+		this.nightsStay = nightsStay;
+		this.rewardPointsTotal = rewardPointsTotal;
+		this.minPrice = minPrice;
+		this.maxPrice = maxPrice;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (!(o instanceof TripDealsFingerprint)) return false;
+		TripDealsFingerprint other = (TripDealsFingerprint) o;
+		return adults == other.adults
+				&& children == other.children
+				&& nightsStay == other.nightsStay
+				&& rewardPointsTotal == other.rewardPointsTotal
+				&& Objects.equals(minPrice, other.minPrice)
+				&& Objects.equals(maxPrice, other.maxPrice);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(adults, children, nightsStay, rewardPointsTotal, minPrice, maxPrice);
+	}
+
+}
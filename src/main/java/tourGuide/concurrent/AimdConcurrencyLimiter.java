@@ -0,0 +1,111 @@
+package tourGuide.concurrent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limit that adapts to the backend: it grows by one after each call made while at least half of it was used,
+ * and is multiplied by the backoff ratio when a call fails or when the recent latency goes over
+ * the usual one times the tolerance. Both latencies are moving averages, the recent one reacting faster.
+ * The limit is cut at most once per usual latency, so a burst of slow calls only counts once.
+ * Waiters block on a ReentrantLock, which unlike synchronized does not pin virtual threads.
+ */
+public class AimdConcurrencyLimiter implements ConcurrencyLimiter {
+
+	private static final double RECENT_LATENCY_WEIGHT = 0.1;
+	private static final double USUAL_LATENCY_WEIGHT = 0.01;
+
+	private final int minLimit;
+	private final int maxLimit;
+	private final double backoffRatio;
+	private final double latencyTolerance;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition underLimit = lock.newCondition();
+
+	// written under the lock, read without it by the gauges
+	private volatile int limit;
+	private volatile int inFlight = 0;
+	private volatile int waiting = 0;
+
+	private double recentLatency = -1;
+	private double usualLatency = -1;
+	private long lastBackoff = System.nanoTime() - TimeUnit.DAYS.toNanos(1);
+
+	public AimdConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double backoffRatio, double latencyTolerance) {
+		if (minLimit < 1 || maxLimit < minLimit) throw new IllegalArgumentException("limits must be 1 <= min <= max");
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.backoffRatio = backoffRatio;
+		this.latencyTolerance = latencyTolerance;
+		this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+	}
+
+	@Override
+	public void acquire() throws InterruptedException {
+		lock.lock();
+		try {
+			waiting++;
+			try {
+				while (inFlight >= limit) {
+					underLimit.await();
+				}
+			} finally {
+				waiting--;
+			}
+			inFlight++;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void release(long latencyNanos, boolean failed) {
+		lock.lock();
+		try {
+			boolean busy = inFlight * 2 >= limit;
+			inFlight--;
+			if (recentLatency < 0) {
+				recentLatency = latencyNanos;
+				usualLatency = latencyNanos;
+			} else {
+				recentLatency += RECENT_LATENCY_WEIGHT * (latencyNanos - recentLatency);
+				usualLatency += USUAL_LATENCY_WEIGHT * (latencyNanos - usualLatency);
+			}
+
+			int previousLimit = limit;
+			if (failed || recentLatency > usualLatency * latencyTolerance) {
+				long now = System.nanoTime();
+				if (now - lastBackoff > usualLatency) {
+					limit = Math.max(minLimit, (int) (limit * backoffRatio));
+					lastBackoff = now;
+				}
+			} else if (busy && limit < maxLimit) {
+				limit++;
+			}
+			if (limit > previousLimit) {
+				underLimit.signalAll();
+			} else {
+				underLimit.signal();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int getLimit() {
+		return limit;
+	}
+
+	@Override
+	public int getInFlight() {
+		return inFlight;
+	}
+
+	@Override
+	public int getWaiting() {
+		return waiting;
+	}
+
+}
@@ -0,0 +1,10 @@
+package tourGuide.concurrent;
+
+/**
+ * External libraries called by the services, all of them blocking and slow
+ */
+public enum Backend {
+	GPS_UTIL,
+	REWARD_CENTRAL,
+	TRIP_PRICER
+}
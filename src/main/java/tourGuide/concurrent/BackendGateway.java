@@ -0,0 +1,105 @@
+package tourGuide.concurrent;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Timer;
+
+import tourGuide.metrics.TourGuideMetrics;
+
+/**
+ * Limits how many calls can be in progress at the same time for each backend, through one ConcurrencyLimiter per backend.
+ * Callers over the limit wait, which is cheap when they run on virtual threads.
+ * The duration of the calls and of the wait are timed per backend, and the limit and the calls in progress are gauged.
+ */
+public class BackendGateway {
+
+	private final Map<Backend, ConcurrencyLimiter> limiters = new EnumMap<>(Backend.class);
+	private final Map<Backend, Timer> callTimers = new EnumMap<>(Backend.class);
+	private final Map<Backend, Timer> waitTimers = new EnumMap<>(Backend.class);
+	private final List<Meter> gauges = new ArrayList<>();
+
+	/**
+	 * Fixed limits, backends missing from the map are not limited
+	 */
+	public BackendGateway(Map<Backend, Integer> limits) {
+		this(backend -> new FixedConcurrencyLimiter(limits.getOrDefault(backend, Integer.MAX_VALUE)));
+	}
+
+	public BackendGateway(Function<Backend, ConcurrencyLimiter> limiterFactory) {
+		for (Backend backend : Backend.values()) {
+			ConcurrencyLimiter limiter = limiterFactory.apply(backend);
+			limiters.put(backend, limiter);
+			String tag = backend.name().toLowerCase();
+			callTimers.put(backend, TourGuideMetrics.timer(TourGuideMetrics.BACKEND_CALLS, "backend", tag));
+			waitTimers.put(backend, TourGuideMetrics.timer(TourGuideMetrics.BACKEND_WAIT, "backend", tag));
+			// the gauges read the limiters, which are fully built, never the gateway under construction
+			gauges.add(Gauge.builder(TourGuideMetrics.BACKEND_LIMIT, limiter, ConcurrencyLimiter::getLimit)
+					.tag("backend", tag)
+					.register(TourGuideMetrics.registry()));
+			gauges.add(Gauge.builder(TourGuideMetrics.BACKEND_IN_FLIGHT, limiter, ConcurrencyLimiter::getInFlight)
+					.tag("backend", tag)
+					.register(TourGuideMetrics.registry()));
+			gauges.add(Gauge.builder(TourGuideMetrics.BACKEND_WAITING, limiter, ConcurrencyLimiter::getWaiting)
+					.tag("backend", tag)
+					.register(TourGuideMetrics.registry()));
+		}
+	}
+
+	/**
+	 * Removes the gauges of this gateway, the timers are shared with the next gateway
+	 */
+	public void unregisterMeters() {
+		TourGuideMetrics.remove(gauges);
+	}
+
+	public <T> T call(Backend backend, Supplier<T> call) {
+		ConcurrencyLimiter limiter = limiters.get(backend);
+		long waitStart = System.nanoTime();
+		try {
+			limiter.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+		long callStart = System.nanoTime();
+		waitTimers.get(backend).record(callStart - waitStart, TimeUnit.NANOSECONDS);
+		boolean failed = true;
+		try {
+			T result = call.get();
+			failed = false;
+			return result;
+		} finally {
+			long latency = System.nanoTime() - callStart;
+			limiter.release(latency, failed);
+			callTimers.get(backend).record(latency, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	public ConcurrencyLimiter getLimiter(Backend backend) {
+		return limiters.get(backend);
+	}
+
+	public int getLimit(Backend backend) {
+		return limiters.get(backend).getLimit();
+	}
+
+	public int getInFlightCalls(Backend backend) {
+		return limiters.get(backend).getInFlight();
+	}
+
+	/**
+	 * Approximate number of callers waiting for a permit
+	 */
+	public int getWaitingCalls(Backend backend) {
+		return limiters.get(backend).getWaiting();
+	}
+
+}
@@ -0,0 +1,63 @@
+package tourGuide.concurrent;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread pool with a fixed number of named threads and a bounded queue.
+ * Meant to be created once and shared, instead of creating a pool for each call.
+ * The threads can be virtual: the pool then only bounds the tasks running and queued, idle workers time out.
+ */
+public final class BoundedExecutor extends ThreadPoolExecutor {
+
+	private static final long IDLE_THREAD_KEEP_ALIVE_SECONDS = 60;
+
+	private final int queueCapacity;
+	private final LongAdder rejectedTasks;
+
+	public BoundedExecutor(String name, int parallelism, int queueCapacity, RejectionPolicy rejectionPolicy) {
+		this(name, parallelism, queueCapacity, rejectionPolicy, new NamedThreadFactory(name));
+	}
+
+	public BoundedExecutor(String name, int parallelism, int queueCapacity, RejectionPolicy rejectionPolicy,
+			ThreadFactory threadFactory) {
+		this(parallelism, queueCapacity, threadFactory, rejectionPolicy.toHandler(), new LongAdder());
+	}
+
+	// the rejection handler is given to the pool as it is built, so the constructor never hands out 'this'
+	private BoundedExecutor(int parallelism, int queueCapacity, ThreadFactory threadFactory,
+			RejectedExecutionHandler handler, LongAdder rejectedTasks) {
+		super(parallelism, parallelism, IDLE_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(queueCapacity), threadFactory, countRejections(handler, rejectedTasks));
+		this.queueCapacity = queueCapacity;
+		this.rejectedTasks = rejectedTasks;
+		allowCoreThreadTimeOut(true);
+	}
+
+	public int getQueueDepth() {
+		return getQueue().size();
+	}
+
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	/**
+	 * Number of tasks that found the queue full, whatever the rejection policy did with them
+	 */
+	public long getRejectedTaskCount() {
+		return rejectedTasks.sum();
+	}
+
+	private static RejectedExecutionHandler countRejections(RejectedExecutionHandler handler, LongAdder rejectedTasks) {
+		return (task, executor) -> {
+			rejectedTasks.increment();
+			handler.rejectedExecution(task, executor);
+		};
+	}
+
+}
@@ -0,0 +1,29 @@
+package tourGuide.concurrent;
+
+/**
+ * Bounds the calls in progress to a backend.
+ * Every successful acquire() must be followed by a release() once the call is over.
+ */
+public interface ConcurrencyLimiter {
+
+	/**
+	 * Waits until the call can start under the current limit
+	 */
+	void acquire() throws InterruptedException;
+
+	/**
+	 * @param latencyNanos how long the call took
+	 * @param failed true if the call threw an exception
+	 */
+	void release(long latencyNanos, boolean failed);
+
+	int getLimit();
+
+	int getInFlight();
+
+	/**
+	 * Approximate number of callers waiting to start
+	 */
+	int getWaiting();
+
+}
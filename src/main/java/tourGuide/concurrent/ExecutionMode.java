@@ -0,0 +1,49 @@
+package tourGuide.concurrent;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * How the services run the blocking calls to GpsUtil, RewardCentral and TripPricer
+ */
+public enum ExecutionMode {
+
+	/** Pools of platform threads, sized in TourGuideConfiguration */
+	PLATFORM,
+	/** One virtual thread per task, the concurrency being limited per backend by the BackendGateway */
+	VIRTUAL;
+
+	/**
+	 * Executor for blocking tasks: a fixed pool of platform threads, or a new virtual thread per task
+	 */
+	public ExecutorService newExecutor(String name, int platformThreads) {
+		if (this == VIRTUAL) {
+			return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 1).factory());
+		}
+		return Executors.newFixedThreadPool(platformThreads, new NamedThreadFactory(name));
+	}
+
+	/**
+	 * Executor running at most parallelism tasks at once and queueing at most queueCapacity others,
+	 * the rejection policy deciding for the tasks beyond that. In VIRTUAL mode the workers are virtual threads,
+	 * so the bound and the policy hold in both modes.
+	 */
+	public BoundedExecutor newBoundedExecutor(String name, int parallelism, int queueCapacity, RejectionPolicy rejectionPolicy) {
+		if (this == VIRTUAL) {
+			return new BoundedExecutor(name, parallelism, queueCapacity, rejectionPolicy,
+					Thread.ofVirtual().name(name + "-", 1).factory());
+		}
+		return new BoundedExecutor(name, parallelism, queueCapacity, rejectionPolicy);
+	}
+
+	/**
+	 * Executor running a single long-lived task, like the Tracker loop
+	 */
+	public ExecutorService newSingleThreadExecutor(String name) {
+		if (this == VIRTUAL) {
+			return newExecutor(name, 1);
+		}
+		return Executors.newSingleThreadExecutor(new NamedThreadFactory(name));
+	}
+
+}
@@ -0,0 +1,43 @@
+package tourGuide.concurrent;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Same limit whatever the latency, callers over it wait for a permit in arrival order
+ */
+public class FixedConcurrencyLimiter implements ConcurrencyLimiter {
+
+	private final int limit;
+	private final Semaphore permits;
+
+	public FixedConcurrencyLimiter(int limit) {
+		this.limit = limit;
+		this.permits = new Semaphore(limit, true);
+	}
+
+	@Override
+	public void acquire() throws InterruptedException {
+		permits.acquire();
+	}
+
+	@Override
+	public void release(long latencyNanos, boolean failed) {
+		permits.release();
+	}
+
+	@Override
+	public int getLimit() {
+		return limit;
+	}
+
+	@Override
+	public int getInFlight() {
+		return limit - permits.availablePermits();
+	}
+
+	@Override
+	public int getWaiting() {
+		return permits.getQueueLength();
+	}
+
+}
@@ -0,0 +1,37 @@
+package tourGuide.concurrent;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * What a bounded executor does with a task when its queue is full
+ */
+public enum RejectionPolicy {
+
+	/** The submitting thread runs the task itself, which slows the producer down */
+	CALLER_RUNS,
+	/** The task is refused with a RejectedExecutionException */
+	ABORT,
+	/** The oldest queued task is dropped to make room, a dropped Future is cancelled so that nobody waits for it forever */
+	DISCARD_OLDEST;
+
+	RejectedExecutionHandler toHandler() {
+		switch (this) {
+			case ABORT:
+				return new ThreadPoolExecutor.AbortPolicy();
+			case DISCARD_OLDEST:
+				return (task, executor) -> {
+					if (executor.isShutdown()) return;
+					Runnable oldest = executor.getQueue().poll();
+					if (oldest instanceof Future<?> future) {
+						future.cancel(false);
+					}
+					executor.execute(task);
+				};
+			default:
+				return new ThreadPoolExecutor.CallerRunsPolicy();
+		}
+	}
+
+}
@@ -0,0 +1,82 @@
+package tourGuide.concurrent;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Shares one execution of a call between the callers asking for the same key at the same time.
+ * The first caller runs the call, the others wait for its result instead of running their own.
+ * Once the call has completed, the next caller for the key starts a new one.
+ */
+public class SingleFlight<K, V> {
+
+	private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+	private final LongAdder sharedCalls = new LongAdder();
+
+	/**
+	 * Runs the call in the current thread, or waits for the one already in flight for the key
+	 */
+	public V call(K key, Supplier<V> call) {
+		CompletableFuture<V> promise = new CompletableFuture<>();
+		CompletableFuture<V> existing = inFlight.putIfAbsent(key, promise);
+		if (existing != null) {
+			sharedCalls.increment();
+			return await(existing);
+		}
+		run(key, promise, call);
+		return await(promise);
+	}
+
+	/**
+	 * Runs the call on the executor, or returns the result of the one already in flight for the key
+	 */
+	public CompletableFuture<V> callAsync(K key, Supplier<V> call, Executor executor) {
+		CompletableFuture<V> promise = new CompletableFuture<>();
+		CompletableFuture<V> existing = inFlight.putIfAbsent(key, promise);
+		if (existing != null) {
+			sharedCalls.increment();
+			return existing.copy(); // a caller cancelling its copy does not cancel the call of the others
+		}
+		try {
+			executor.execute(() -> run(key, promise, call));
+		} catch (RejectedExecutionException e) {
+			inFlight.remove(key, promise);
+			promise.completeExceptionally(e);
+		}
+		return promise.copy();
+	}
+
+	public int getInFlightCount() {
+		return inFlight.size();
+	}
+
+	/**
+	 * Number of callers that got the result of a call started by another caller
+	 */
+	public long getSharedCallCount() {
+		return sharedCalls.sum();
+	}
+
+	private void run(K key, CompletableFuture<V> promise, Supplier<V> call) {
+		try {
+			V result = call.get();
+			inFlight.remove(key, promise);
+			promise.complete(result);
+		} catch (Throwable e) {
+			inFlight.remove(key, promise);
+			promise.completeExceptionally(e);
+		}
+	}
+
+	private static <V> V await(CompletableFuture<V> future) {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException cause) throw cause;
+			if (e.getCause() instanceof Error cause) throw cause;
+			throw e;
+		}
+	}
+
+}
@@ -0,0 +1,216 @@
+package tourGuide.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+
+import tourGuide.metrics.TourGuideMetrics;
+
+/**
+ * Bounded queue of per-user tasks in front of an executor.
+ * At most capacity tasks are waiting or running at once; the policy decides what happens
+ * to the tasks submitted beyond that, or while the same user already has a task waiting.
+ */
+public class UserWorkQueue {
+
+	private final String name;
+	private final ExecutorService executor;
+	private final int capacity;
+	private final WorkQueuePolicy policy;
+	private final Semaphore permits;
+	// task of each user that has not started yet, claimed atomically per user (COALESCE and DROP_OLDEST_PER_USER)
+	private final ConcurrentHashMap<UUID, QueuedTask> waiting = new ConcurrentHashMap<>();
+	private final LongAdder droppedTasks = new LongAdder();
+	private final LongAdder coalescedTasks = new LongAdder();
+	private final LongAdder rejectedTasks = new LongAdder();
+	private final List<Meter> meters = new ArrayList<>();
+
+	public UserWorkQueue(String name, ExecutorService executor, int capacity, WorkQueuePolicy policy) {
+		this.name = name;
+		this.executor = executor;
+		this.capacity = capacity;
+		this.policy = policy;
+		this.permits = new Semaphore(capacity, true);
+
+		// the meters read the permits and the counters, never the queue under construction
+		meters.add(Gauge.builder(TourGuideMetrics.WORK_QUEUE_DEPTH, permits, p -> capacity - p.availablePermits())
+				.tag("queue", name)
+				.register(TourGuideMetrics.registry()));
+		meters.add(FunctionCounter.builder(TourGuideMetrics.WORK_QUEUE_DROPPED, droppedTasks, LongAdder::sum)
+				.tag("queue", name)
+				.register(TourGuideMetrics.registry()));
+		meters.add(FunctionCounter.builder(TourGuideMetrics.WORK_QUEUE_COALESCED, coalescedTasks, LongAdder::sum)
+				.tag("queue", name)
+				.register(TourGuideMetrics.registry()));
+		meters.add(FunctionCounter.builder(TourGuideMetrics.WORK_QUEUE_REJECTED, rejectedTasks, LongAdder::sum)
+				.tag("queue", name)
+				.register(TourGuideMetrics.registry()));
+	}
+
+	/**
+	 * Removes the meters of this queue, once its executor is shut down
+	 */
+	public void unregisterMeters() {
+		TourGuideMetrics.remove(meters);
+	}
+
+	/**
+	 * @return false if the task was refused, true if it will run or was merged into a waiting task of the user
+	 * @throws RejectedExecutionException if the executor has been shut down
+	 */
+	public boolean submit(UUID userId, Runnable task) {
+		return submit(userId, task, true);
+	}
+
+	/**
+	 * Like submit, but refuses the task instead of waiting when the queue is full
+	 * @return false if the task was refused, true if it will run or was merged into a waiting task of the user
+	 * @throws RejectedExecutionException if the executor has been shut down
+	 */
+	public boolean offer(UUID userId, Runnable task) {
+		return submit(userId, task, false);
+	}
+
+	private boolean submit(UUID userId, Runnable task, boolean wait) {
+		QueuedTask queuedTask = new QueuedTask(task);
+		switch (policy) {
+			case COALESCE:
+				// the slot of the user is claimed before waiting for room, the tasks submitted meanwhile merge into it
+				if (waiting.compute(userId, (id, current) -> current != null && current.isWaiting() ? current : queuedTask) != queuedTask) {
+					coalescedTasks.increment();
+					return true;
+				}
+				if (!acquire(wait)) {
+					waiting.remove(userId, queuedTask);
+					return false;
+				}
+				break;
+			case DROP_OLDEST_PER_USER:
+				boolean acquired = permits.tryAcquire();
+				QueuedTask claimed = waiting.compute(userId, (id, current) -> {
+					if (current != null && current.replace(task)) return current;
+					return acquired ? queuedTask : null;
+				});
+				if (claimed != queuedTask) {
+					if (acquired) permits.release();
+					if (claimed == null) {
+						rejectedTasks.increment();
+						return false;
+					}
+					droppedTasks.increment();
+					return true;
+				}
+				break;
+			default:
+				if (!acquire(wait)) return false;
+		}
+
+		try {
+			executor.execute(() -> run(userId, queuedTask));
+		} catch (RejectedExecutionException e) {
+			waiting.remove(userId, queuedTask);
+			permits.release();
+			throw e;
+		}
+		return true;
+	}
+
+	/**
+	 * Number of tasks waiting or running
+	 */
+	public int getDepth() {
+		return capacity - permits.availablePermits();
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public WorkQueuePolicy getPolicy() {
+		return policy;
+	}
+
+	/**
+	 * Number of waiting tasks replaced by a newer task of the same user
+	 */
+	public long getDroppedCount() {
+		return droppedTasks.sum();
+	}
+
+	/**
+	 * Number of tasks not queued because the same user already had one waiting
+	 */
+	public long getCoalescedCount() {
+		return coalescedTasks.sum();
+	}
+
+	public long getRejectedCount() {
+		return rejectedTasks.sum();
+	}
+
+	private boolean acquire(boolean wait) {
+		if (!wait) {
+			if (permits.tryAcquire()) return true;
+			rejectedTasks.increment();
+			return false;
+		}
+		try {
+			permits.acquire();
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			rejectedTasks.increment();
+			return false;
+		}
+	}
+
+	private void run(UUID userId, QueuedTask queuedTask) {
+		waiting.remove(userId, queuedTask);
+		try {
+			Runnable task = queuedTask.start();
+			if (task != null) task.run();
+		} finally {
+			permits.release();
+		}
+	}
+
+	private static final class QueuedTask {
+		private final AtomicReference<Runnable> task;
+
+		QueuedTask(Runnable task) {
+			this.task = new AtomicReference<>(task);
+		}
+
+		boolean isWaiting() {
+			return task.get() != null;
+		}
+
+		/**
+		 * Swaps in a newer task, unless this one has already started
+		 */
+		boolean replace(Runnable newer) {
+			Runnable current = task.get();
+			while (current != null) {
+				if (task.compareAndSet(current, newer)) return true;
+				current = task.get();
+			}
+			return false;
+		}
+
+		Runnable start() {
+			return task.getAndSet(null);
+		}
+	}
+
+}
@@ -0,0 +1,15 @@
+package tourGuide.concurrent;
+
+/**
+ * What a UserWorkQueue does with a task when it is full, or when the user already has a task waiting
+ */
+public enum WorkQueuePolicy {
+
+	/** The producer waits until a task of the queue has completed */
+	BLOCK,
+	/** The new task replaces the waiting task of the same user, if there is none it is queued, or refused when the queue is full */
+	DROP_OLDEST_PER_USER,
+	/** A task is dropped when the same user already has one waiting, otherwise the producer waits for room */
+	COALESCE
+
+}
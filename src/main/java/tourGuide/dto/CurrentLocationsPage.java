@@ -0,0 +1,37 @@
+package tourGuide.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+import gpsUtil.location.VisitedLocation;
+
+public class CurrentLocationsPage {
+
+    // Users of the page are counted against the limit even when they have no stored location yet,
+    // so a page can hold fewer locations than the limit and still not be the last one.
+
+    private final List<VisitedLocation> locations;
+    private final int usersWithoutLocation;
+    private final UUID nextCursor;
+
+    public CurrentLocationsPage(List<VisitedLocation> locations, int usersWithoutLocation, UUID nextCursor) {
+        this.locations = locations;
+        this.usersWithoutLocation = usersWithoutLocation;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<VisitedLocation> getLocations() {
+        return locations;
+    }
+
+    public int getUsersWithoutLocation() {
+        return usersWithoutLocation;
+    }
+
+    /**
+     * Id of the last user of the page, to pass for the next page, or null if this page is the last one
+     */
+    public UUID getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,56 @@
+package tourGuide.geo;
+
+import gpsUtil.location.Location;
+
+/**
+ * Latitude/longitude ranges containing every point at no more than a given distance of a center.
+ * Testing a point against the box only takes comparisons, so it is done before computing any distance.
+ */
+public final class BoundingBox {
+
+	// keeps the box slightly larger than needed to absorb rounding errors
+	private static final double MARGIN_DEGREES = 1e-9;
+
+	public final double minLatitude;
+	public final double maxLatitude;
+	public final double centerLongitude;
+	/** Half width of the box in longitude, 180 or more when every longitude is in the box */
+	public final double longitudeDelta;
+
+	private BoundingBox(double minLatitude, double maxLatitude, double centerLongitude, double longitudeDelta) {
+		this.minLatitude = minLatitude;
+		this.maxLatitude = maxLatitude;
+		this.centerLongitude = centerLongitude;
+		this.longitudeDelta = longitudeDelta;
+	}
+
+	public static BoundingBox around(Location center, double miles) {
+		double angle = miles / GeoMath.EARTH_RADIUS_MILES;
+		if (!(angle < Math.PI)) {
+			return new BoundingBox(-90, 90, center.longitude, 180);
+		}
+		double latitudeDelta = Math.toDegrees(angle) + MARGIN_DEGREES;
+		double minLatitude = center.latitude - latitudeDelta;
+		double maxLatitude = center.latitude + latitudeDelta;
+		double cosLatitude = Math.cos(Math.toRadians(center.latitude));
+		if (minLatitude <= -90 || maxLatitude >= 90 || Math.sin(angle) >= cosLatitude) {
+			// a pole is within the distance, so every longitude is
+			return new BoundingBox(Math.max(-90, minLatitude), Math.min(90, maxLatitude), center.longitude, 180);
+		}
+		double longitudeDelta = Math.toDegrees(Math.asin(Math.sin(angle) / cosLatitude)) + MARGIN_DEGREES;
+		return new BoundingBox(minLatitude, maxLatitude, center.longitude, longitudeDelta);
+	}
+
+	public boolean coversAllLongitudes() {
+		return longitudeDelta >= 180;
+	}
+
+	public boolean contains(double latitude, double longitude) {
+		if (latitude < minLatitude || latitude > maxLatitude) return false;
+		if (coversAllLongitudes()) return true;
+		double delta = Math.abs(longitude - centerLongitude);
+		if (delta > 180) delta = 360 - delta;
+		return delta <= longitudeDelta;
+	}
+
+}
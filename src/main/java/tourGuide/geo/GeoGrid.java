@@ -0,0 +1,95 @@
+package tourGuide.geo;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Grid of latitude/longitude cells of a fixed size in degrees, each cell known by a long key.
+ * Longitudes wrap around the antimeridian, latitudes are clamped to the poles.
+ * The grid only does the maths, the indexes keep what each cell holds.
+ */
+public final class GeoGrid {
+
+	private final double cellDegrees;
+	private final int latitudeCells;
+	private final int longitudeCells;
+
+	public GeoGrid(double cellDegrees) {
+		this.cellDegrees = cellDegrees;
+		this.latitudeCells = (int) Math.ceil(180 / cellDegrees);
+		this.longitudeCells = (int) Math.ceil(360 / cellDegrees);
+	}
+
+	public double getCellDegrees() {
+		return cellDegrees;
+	}
+
+	/**
+	 * Key of the cell containing the point
+	 */
+	public long cellOf(double latitude, double longitude) {
+		return cellKey(latitudeCell(latitude), longitudeCell(longitude));
+	}
+
+	/**
+	 * Cells overlapped by the box, every longitude of them when the box covers all longitudes
+	 */
+	public CellRange cellsOverlapping(BoundingBox box) {
+		int firstLongitudeCell;
+		int longitudeCellCount;
+		if (box.coversAllLongitudes()) {
+			firstLongitudeCell = 0;
+			longitudeCellCount = longitudeCells;
+		} else {
+			firstLongitudeCell = (int) Math.floor((box.centerLongitude - box.longitudeDelta + 180) / cellDegrees);
+			int lastLongitudeCell = (int) Math.floor((box.centerLongitude + box.longitudeDelta + 180) / cellDegrees);
+			longitudeCellCount = Math.min(longitudeCells, lastLongitudeCell - firstLongitudeCell + 1);
+		}
+		return new CellRange(latitudeCell(box.minLatitude), latitudeCell(box.maxLatitude), firstLongitudeCell, longitudeCellCount);
+	}
+
+	private int latitudeCell(double latitude) {
+		int cell = (int) Math.floor((latitude + 90) / cellDegrees);
+		return Math.max(0, Math.min(latitudeCells - 1, cell));
+	}
+
+	private int longitudeCell(double longitude) {
+		return Math.floorMod((int) Math.floor((longitude + 180) / cellDegrees), longitudeCells);
+	}
+
+	private long cellKey(int latitudeCell, int longitudeCell) {
+		return (long) latitudeCell * longitudeCells + longitudeCell;
+	}
+
+	/**
+	 * Rectangle of cells, the longitudes possibly wrapping around the antimeridian
+	 */
+	public final class CellRange {
+		private final int firstLatitudeCell;
+		private final int lastLatitudeCell;
+		private final int firstLongitudeCell;
+		private final int longitudeCellCount;
+
+		private CellRange(int firstLatitudeCell, int lastLatitudeCell, int firstLongitudeCell, int longitudeCellCount) {
+			this.firstLatitudeCell = firstLatitudeCell;
+			this.lastLatitudeCell = lastLatitudeCell;
+			this.firstLongitudeCell = firstLongitudeCell;
+			this.longitudeCellCount = longitudeCellCount;
+		}
+
+		public long count() {
+			return (long) (lastLatitudeCell - firstLatitudeCell + 1) * longitudeCellCount;
+		}
+
+		/**
+		 * Calls the action with the key of every cell of the range
+		 */
+		public void forEach(LongConsumer action) {
+			for (int latitudeCell = firstLatitudeCell; latitudeCell <= lastLatitudeCell; latitudeCell++) {
+				for (int i = 0; i < longitudeCellCount; i++) {
+					action.accept(cellKey(latitudeCell, Math.floorMod(firstLongitudeCell + i, longitudeCells)));
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,65 @@
+package tourGuide.geo;
+
+import gpsUtil.location.Location;
+
+import static tourGuide.TourGuideConfiguration.STATUTE_MILES_PER_NAUTICAL_MILE;
+
+public final class GeoMath {
+
+	// One degree of a great circle is 60 nautical miles
+	public static final double MILES_PER_DEGREE = 60 * STATUTE_MILES_PER_NAUTICAL_MILE;
+	public static final double EARTH_RADIUS_MILES = Math.toDegrees(MILES_PER_DEGREE);
+	public static final double HALF_EARTH_CIRCUMFERENCE_MILES = 180 * MILES_PER_DEGREE;
+
+	private GeoMath() {
+	}
+
+	/**
+	 * Great-circle distance in statute miles (spherical law of cosines)
+	 */
+	public static double distanceInMiles(Location loc1, Location loc2) {
+		double lat1 = Math.toRadians(loc1.latitude);
+		double lon1 = Math.toRadians(loc1.longitude);
+		double lat2 = Math.toRadians(loc2.latitude);
+		double lon2 = Math.toRadians(loc2.longitude);
+
+		double cosAngle = Math.sin(lat1) * Math.sin(lat2)
+				+ Math.cos(lat1) * Math.cos(lat2) * Math.cos(lon1 - lon2);
+		// rounding errors can push the cosine slightly out of range for (almost) identical points
+		double angle = Math.acos(Math.max(-1, Math.min(1, cosAngle)));
+
+		return MILES_PER_DEGREE * Math.toDegrees(angle);
+	}
+
+	/**
+	 * Haversine great-circle distance in statute miles, accurate even for points very close to each other
+	 */
+	public static double haversineDistanceInMiles(Location loc1, Location loc2) {
+		return GeoPoint.of(loc1).haversineDistanceInMiles(GeoPoint.of(loc2));
+	}
+
+	/**
+	 * Cosine of the angle matching a distance in miles: points are within that distance
+	 * when GeoPoint.cosineOfAngleTo is greater or equal
+	 */
+	public static double cosineOfDistance(double miles) {
+		double angle = miles / EARTH_RADIUS_MILES;
+		return angle >= Math.PI ? -1 : Math.cos(angle);
+	}
+
+	/**
+	 * A bit lower than cosineOfDistance, so that a first check on the cosine never rejects a point
+	 * within the distance: distanceOfCosine decides for the points in between
+	 */
+	public static double minCosineOfDistance(double miles) {
+		return cosineOfDistance(miles) - 1e-12;
+	}
+
+	/**
+	 * Distance in miles matching the cosine of an angle, the reverse of cosineOfDistance
+	 */
+	public static double distanceOfCosine(double cosine) {
+		return MILES_PER_DEGREE * Math.toDegrees(Math.acos(cosine));
+	}
+
+}
@@ -0,0 +1,60 @@
+package tourGuide.geo;
+
+import gpsUtil.location.Location;
+
+/**
+ * A location with the trigonometry of its latitude computed once, for the points that are
+ * measured against many others (attractions, or the location of a search).
+ */
+public final class GeoPoint {
+
+	public final double latitude;
+	public final double longitude;
+	final double longitudeRadians;
+	final double latitudeRadians;
+	final double sinLatitude;
+	final double cosLatitude;
+
+	private GeoPoint(double latitude, double longitude) {
+		this.latitude = latitude;
+		this.longitude = longitude;
+		this.latitudeRadians = Math.toRadians(latitude);
+		this.longitudeRadians = Math.toRadians(longitude);
+		this.sinLatitude = Math.sin(latitudeRadians);
+		this.cosLatitude = Math.cos(latitudeRadians);
+	}
+
+	public static GeoPoint of(Location location) {
+		return new GeoPoint(location.latitude, location.longitude);
+	}
+
+	/**
+	 * Cosine of the angle between the two points seen from the center of the earth.
+	 * It decreases with the distance, so it can be compared to GeoMath.cosineOfDistance(miles) without any acos.
+	 */
+	public double cosineOfAngleTo(GeoPoint other) {
+		double cosAngle = sinLatitude * other.sinLatitude
+				+ cosLatitude * other.cosLatitude * Math.cos(longitudeRadians - other.longitudeRadians);
+		return Math.max(-1, Math.min(1, cosAngle));
+	}
+
+	/**
+	 * Same result as GeoMath.distanceInMiles, with only one cos and one acos to compute
+	 */
+	public double distanceInMiles(GeoPoint other) {
+		return GeoMath.distanceOfCosine(cosineOfAngleTo(other));
+	}
+
+	/**
+	 * Haversine formula, which stays accurate for points very close to each other
+	 */
+	public double haversineDistanceInMiles(GeoPoint other) {
+		double sinHalfLatitude = Math.sin((other.latitudeRadians - latitudeRadians) / 2);
+		double sinHalfLongitude = Math.sin((other.longitudeRadians - longitudeRadians) / 2);
+		double a = sinHalfLatitude * sinHalfLatitude
+				+ cosLatitude * other.cosLatitude * sinHalfLongitude * sinHalfLongitude;
+		double angle = 2 * Math.asin(Math.min(1, Math.sqrt(a)));
+		return GeoMath.MILES_PER_DEGREE * Math.toDegrees(angle);
+	}
+
+}
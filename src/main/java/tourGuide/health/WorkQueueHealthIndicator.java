@@ -0,0 +1,52 @@
+package tourGuide.health;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.stereotype.Component;
+
+import tourGuide.concurrent.BoundedExecutor;
+import tourGuide.concurrent.UserWorkQueue;
+import tourGuide.service.TourGuideService;
+
+import static tourGuide.TourGuideConfiguration.TRACKING_EXECUTOR_DEGRADED_THRESHOLD;
+import static tourGuide.TourGuideConfiguration.TRACKING_QUEUE_DEGRADED_THRESHOLD;
+
+/**
+ * Reports the tracking queue as DEGRADED when its backlog, or the one of the executor behind it,
+ * goes over the threshold: the service still answers, but locations are getting late
+ */
+@Component
+public class WorkQueueHealthIndicator implements HealthIndicator {
+
+	public static final Status DEGRADED = new Status("DEGRADED", "Backlog over " + TRACKING_QUEUE_DEGRADED_THRESHOLD + " tasks");
+
+	private final UserWorkQueue trackingQueue;
+	private final BoundedExecutor trackingExecutor;
+
+	public WorkQueueHealthIndicator(TourGuideService tourGuideService) {
+		this.trackingQueue = tourGuideService.getTrackingQueue();
+		this.trackingExecutor = tourGuideService.getTrackingExecutor();
+	}
+
+	@Override
+	public Health health() {
+		int depth = trackingQueue.getDepth();
+		int executorDepth = trackingExecutor.getQueueDepth();
+		boolean degraded = depth > TRACKING_QUEUE_DEGRADED_THRESHOLD || executorDepth > TRACKING_EXECUTOR_DEGRADED_THRESHOLD;
+		Health.Builder builder = degraded ? Health.status(DEGRADED) : Health.up();
+		return builder
+				.withDetail("queue", trackingQueue.getName())
+				.withDetail("policy", trackingQueue.getPolicy())
+				.withDetail("depth", depth)
+				.withDetail("capacity", trackingQueue.getCapacity())
+				.withDetail("dropped", trackingQueue.getDroppedCount())
+				.withDetail("coalesced", trackingQueue.getCoalescedCount())
+				.withDetail("rejected", trackingQueue.getRejectedCount())
+				.withDetail("executorDepth", executorDepth)
+				.withDetail("executorCapacity", trackingExecutor.getQueueCapacity())
+				.withDetail("executorRejected", trackingExecutor.getRejectedTaskCount())
+				.build();
+	}
+
+}
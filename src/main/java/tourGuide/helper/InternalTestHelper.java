@@ -1,9 +1,15 @@
 package tourGuide.helper;
 
+import java.nio.file.Path;
+
 public class InternalTestHelper {
 
 	// Set this default up to 100,000 for testing
 	private static int internalUserNumber = 100;
+	// Same users on every start when set, random ones otherwise
+	private static Long internalUserSeed = null;
+	// Users are loaded from this file when it holds the right number of users, and written to it otherwise
+	private static Path internalUserSnapshot = null;
 	
 	public static void setInternalUserNumber(int internalUserNumber) {
 		InternalTestHelper.internalUserNumber = internalUserNumber;
@@ -12,4 +18,20 @@ public class InternalTestHelper {
 	public static int getInternalUserNumber() {
 		return internalUserNumber;
 	}
+
+	public static void setInternalUserSeed(Long internalUserSeed) {
+		InternalTestHelper.internalUserSeed = internalUserSeed;
+	}
+
+	public static Long getInternalUserSeed() {
+		return internalUserSeed;
+	}
+
+	public static void setInternalUserSnapshot(Path internalUserSnapshot) {
+		InternalTestHelper.internalUserSnapshot = internalUserSnapshot;
+	}
+
+	public static Path getInternalUserSnapshot() {
+		return internalUserSnapshot;
+	}
 }
@@ -0,0 +1,95 @@
+package tourGuide.helper;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import tourGuide.model.User;
+
+/**
+ * Binary file holding the internal users and their location histories,
+ * so a large population does not have to be generated again on each start.
+ */
+public final class InternalUserSnapshot {
+
+	private static final int MAGIC = 0x54475553; // "TGUS"
+	private static final int FORMAT_VERSION = 1;
+
+	private InternalUserSnapshot() {
+	}
+
+	public static void write(Path file, Collection<User> users) {
+		Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			out.writeInt(users.size());
+			for (User user : users) {
+				out.writeLong(user.getUserId().getMostSignificantBits());
+				out.writeLong(user.getUserId().getLeastSignificantBits());
+				out.writeUTF(user.getUserName());
+				out.writeUTF(user.getPhoneNumber());
+				out.writeUTF(user.getEmailAddress());
+				List<VisitedLocation> visitedLocations = user.getVisitedLocations();
+				out.writeInt(visitedLocations.size());
+				for (VisitedLocation visitedLocation : visitedLocations) {
+					out.writeDouble(visitedLocation.location.latitude);
+					out.writeDouble(visitedLocation.location.longitude);
+					out.writeLong(visitedLocation.timeVisited.getTime());
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		try {
+			Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Number of users in the snapshot, or -1 if the file is missing or is not a snapshot
+	 */
+	public static int countUsers(Path file) {
+		if (!Files.isRegularFile(file)) return -1;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) return -1;
+			return in.readInt();
+		} catch (IOException e) {
+			return -1;
+		}
+	}
+
+	public static List<User> read(Path file) {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+			if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+				throw new IOException("Not an internal user snapshot: " + file);
+			}
+			int count = in.readInt();
+			List<User> users = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				UUID userId = new UUID(in.readLong(), in.readLong());
+				User user = new User(userId, in.readUTF(), in.readUTF(), in.readUTF());
+				int locations = in.readInt();
+				for (int j = 0; j < locations; j++) {
+					Location location = new Location(in.readDouble(), in.readDouble());
+					user.addToVisitedLocations(new VisitedLocation(userId, location, new Date(in.readLong())));
+				}
+				users.add(user);
+			}
+			return users;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+}
@@ -0,0 +1,23 @@
+package tourGuide.helper;
+
+import java.util.Date;
+import java.util.UUID;
+
+import com.jsoniter.spi.JsoniterSpi;
+
+/**
+ * Since Java 9 jsoniter can no longer read the private fields of JDK classes by reflection,
+ * so the JDK types found in the responses get their own encoders.
+ */
+public class JsonEncoders {
+
+	private static boolean registered = false;
+
+	public static synchronized void register() {
+		if (registered) return;
+		JsoniterSpi.registerTypeEncoder(UUID.class, (uuid, stream) -> stream.writeVal(uuid.toString()));
+		JsoniterSpi.registerTypeEncoder(Date.class, (date, stream) -> stream.writeVal(((Date) date).getTime()));
+		registered = true;
+	}
+
+}
@@ -0,0 +1,41 @@
+package tourGuide.job;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import static tourGuide.TourGuideConfiguration.REWARD_RECOMPUTATION_LOOKUPS_PER_SECOND;
+
+/**
+ * /actuator/rewardRecomputation: GET for the progress, POST to start or resume a run
+ * (JSON body, {"lookupsPerSecond": n} or {} for the default pace), DELETE to cancel it
+ */
+@Component
+@Endpoint(id = "rewardRecomputation")
+public class RewardRecomputationEndpoint {
+
+	private final RewardRecomputationJob job;
+
+	public RewardRecomputationEndpoint(RewardRecomputationJob job) {
+		this.job = job;
+	}
+
+	@ReadOperation
+	public RewardRecomputationProgress progress() {
+		return job.getProgress();
+	}
+
+	@WriteOperation
+	public RewardRecomputationProgress start(@Nullable Double lookupsPerSecond) {
+		return job.start(lookupsPerSecond != null ? lookupsPerSecond : REWARD_RECOMPUTATION_LOOKUPS_PER_SECOND);
+	}
+
+	@DeleteOperation
+	public RewardRecomputationProgress cancel() {
+		return job.cancel();
+	}
+
+}
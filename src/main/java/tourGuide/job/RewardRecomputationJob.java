@@ -0,0 +1,240 @@
+package tourGuide.job;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import tourGuide.concurrent.NamedThreadFactory;
+import tourGuide.model.User;
+import tourGuide.pipeline.LocationEventPipeline;
+import tourGuide.registry.UserRegistry;
+import tourGuide.service.RewardsService;
+import tourGuide.service.TourGuideService;
+import tourGuide.tracker.TokenBucket;
+
+import static tourGuide.TourGuideConfiguration.*;
+
+/**
+ * Recomputes the rewards of every user, for instance after the proximity buffer or the attractions have changed.
+ * The registry is split over a ForkJoinPool and each part is checked by batches. Users whose rewards are already
+ * up to date are skipped, so a cancelled run is resumed by starting a new one.
+ * The outdated users are published to the location event pipeline rather than evaluated here, so that
+ * they are never evaluated at the same time as a new location of theirs. Their RewardCentral lookups are paced
+ * by a token bucket so that they leave room for the tracking, and they count as processed once the pipeline
+ * has evaluated them: a run is over when every user it published has been evaluated.
+ * Only one run at a time.
+ */
+@Component
+public class RewardRecomputationJob {
+	private final Logger logger = LoggerFactory.getLogger(RewardRecomputationJob.class);
+	private final UserRegistry userRegistry;
+	private final RewardsService rewardsService;
+	private final LocationEventPipeline locationEvents;
+	private final int parallelism;
+	private final int batchSize;
+	private final ThreadFactory threadFactory = new NamedThreadFactory("reward-recomputation");
+	private volatile Run lastRun;
+
+	@Autowired
+	public RewardRecomputationJob(TourGuideService tourGuideService, RewardsService rewardsService) {
+		this(tourGuideService.getUserRegistry(), rewardsService, tourGuideService.getLocationEvents(),
+				REWARD_RECOMPUTATION_PARALLELISM, REWARD_RECOMPUTATION_BATCH_SIZE);
+	}
+
+	public RewardRecomputationJob(UserRegistry userRegistry, RewardsService rewardsService, LocationEventPipeline locationEvents,
+			int parallelism, int batchSize) {
+		this.userRegistry = userRegistry;
+		this.rewardsService = rewardsService;
+		this.locationEvents = locationEvents;
+		this.parallelism = parallelism;
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Starts a run unless one is already running
+	 * @param lookupsPerSecond maximum pace of the RewardCentral lookups of the run, 0 or less for no limit
+	 * @return the progress of the started or already running run
+	 */
+	public synchronized RewardRecomputationProgress start(double lookupsPerSecond) {
+		Run run = lastRun;
+		if (run != null && run.state == RewardRecomputationState.RUNNING) {
+			return run.progress();
+		}
+		run = new Run(userRegistry.size(), lookupsPerSecond > 0 ? new TokenBucket(lookupsPerSecond, lookupsPerSecond) : null);
+		lastRun = run;
+		threadFactory.newThread(run).start();
+		logger.debug("Reward recomputation started for {} users", run.totalUsers);
+		return run.progress();
+	}
+
+	/**
+	 * Stops the running run once the users it already published are evaluated, users already done stay done
+	 */
+	public RewardRecomputationProgress cancel() {
+		Run run = lastRun;
+		if (run == null) return RewardRecomputationProgress.IDLE;
+		run.cancelled = true;
+		return run.progress();
+	}
+
+	public RewardRecomputationProgress getProgress() {
+		Run run = lastRun;
+		return run == null ? RewardRecomputationProgress.IDLE : run.progress();
+	}
+
+	/**
+	 * @return false if the last run is still running after the timeout
+	 */
+	public boolean awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+		Run run = lastRun;
+		return run == null || run.done.await(timeout, unit);
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		cancel();
+	}
+
+	private final class Run implements Runnable, LocationEventPipeline.BatchListener {
+		final long totalUsers;
+		final TokenBucket throttle;
+		final Instant startedAt = Instant.now();
+		final long startNanos = System.nanoTime();
+		final LongAdder processedUsers = new LongAdder();
+		final LongAdder skippedUsers = new LongAdder();
+		final LongAdder failedBatches = new LongAdder();
+		// users published and not evaluated yet, the lock is notified as they are
+		final Set<User> pendingUsers = ConcurrentHashMap.newKeySet();
+		final Object evaluationLock = new Object();
+		final CountDownLatch done = new CountDownLatch(1);
+		volatile boolean cancelled = false;
+		volatile RewardRecomputationState state = RewardRecomputationState.RUNNING;
+		volatile Instant finishedAt;
+		volatile long finishedNanos;
+
+		Run(long totalUsers, TokenBucket throttle) {
+			this.totalUsers = totalUsers;
+			this.throttle = throttle;
+		}
+
+		@Override
+		public void run() {
+			ForkJoinPool pool = new ForkJoinPool(parallelism);
+			locationEvents.addBatchListener(this);
+			try {
+				pool.invoke(new Partition(this, userRegistry.spliterator()));
+				awaitPendingUsers();
+				state = cancelled ? RewardRecomputationState.CANCELLED : RewardRecomputationState.COMPLETED;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				state = RewardRecomputationState.CANCELLED;
+			} catch (RuntimeException e) {
+				logger.warn("Reward recomputation failed", e);
+				state = RewardRecomputationState.FAILED;
+			} finally {
+				pool.shutdown();
+				locationEvents.removeBatchListener(this);
+				pendingUsers.forEach(rewardsService::unthrottleLookups);
+				finishedNanos = System.nanoTime();
+				finishedAt = Instant.now();
+				done.countDown();
+			}
+			logger.debug("Reward recomputation {} after {} users, {} skipped", state, processedUsers.sum(), skippedUsers.sum());
+		}
+
+		void evaluate(List<User> batch) {
+			for (User user : batch) {
+				if (rewardsService.isUpToDate(user)) {
+					skippedUsers.increment();
+					processedUsers.increment();
+					continue;
+				}
+				if (throttle != null) rewardsService.throttleLookups(user, throttle);
+				pendingUsers.add(user);
+				locationEvents.publish(user);
+			}
+		}
+
+		@Override
+		public void batchHandled(Collection<User> users, RuntimeException failure) {
+			boolean evaluated = false;
+			for (User user : users) {
+				if (!pendingUsers.remove(user)) continue;
+				rewardsService.unthrottleLookups(user);
+				if (failure == null) processedUsers.increment();
+				evaluated = true;
+			}
+			if (!evaluated) return;
+			if (failure != null) failedBatches.increment(); // these users are not up to date, the next run retries them
+			synchronized (evaluationLock) {
+				evaluationLock.notifyAll();
+			}
+		}
+
+		private void awaitPendingUsers() throws InterruptedException {
+			synchronized (evaluationLock) {
+				while (!pendingUsers.isEmpty()) {
+					evaluationLock.wait();
+				}
+			}
+		}
+
+		RewardRecomputationProgress progress() {
+			long processed = processedUsers.sum();
+			Instant finished = finishedAt;
+			double elapsedSeconds = ((finished == null ? System.nanoTime() : finishedNanos) - startNanos) / 1e9;
+			double usersPerSecond = elapsedSeconds > 0 ? processed / elapsedSeconds : 0;
+			Long etaSeconds = null;
+			if (state == RewardRecomputationState.RUNNING && usersPerSecond > 0) {
+				etaSeconds = (long) Math.ceil(Math.max(0, totalUsers - processed) / usersPerSecond);
+			}
+			return new RewardRecomputationProgress(state, totalUsers, processed, skippedUsers.sum(), failedBatches.sum(),
+					usersPerSecond, etaSeconds, startedAt, finished);
+		}
+	}
+
+	/**
+	 * Forks the halves of its users while there are more than a batch, then evaluates what is left batch by batch
+	 */
+	private final class Partition extends RecursiveAction {
+		private final Run run;
+		private final Spliterator<User> users;
+
+		Partition(Run run, Spliterator<User> users) {
+			this.run = run;
+			this.users = users;
+		}
+
+		@Override
+		protected void compute() {
+			List<Partition> forked = new ArrayList<>();
+			Spliterator<User> split;
+			while (users.estimateSize() > batchSize && (split = users.trySplit()) != null) {
+				Partition partition = new Partition(run, split);
+				partition.fork();
+				forked.add(partition);
+			}
+
+			List<User> batch = new ArrayList<>(batchSize);
+			while (!run.cancelled && users.tryAdvance(batch::add)) {
+				if (batch.size() == batchSize) {
+					run.evaluate(batch);
+					batch.clear();
+				}
+			}
+			if (!run.cancelled && !batch.isEmpty()) {
+				run.evaluate(batch);
+			}
+			forked.forEach(ForkJoinTask::join);
+		}
+	}
+
+}
@@ -0,0 +1,87 @@
+package tourGuide.job;
+
+import java.time.Instant;
+
+/**
+ * Immutable view of a reward recomputation run, as reported by the actuator endpoint
+ */
+public final class RewardRecomputationProgress {
+
+	static final RewardRecomputationProgress IDLE =
+			new RewardRecomputationProgress(RewardRecomputationState.IDLE, 0, 0, 0, 0, 0, null, null, null);
+
+	private final RewardRecomputationState state;
+	private final long totalUsers;
+	private final long processedUsers;
+	private final long skippedUsers;
+	private final long failedBatches;
+	private final double usersPerSecond;
+	private final Long etaSeconds;
+	private final Instant startedAt;
+	private final Instant finishedAt;
+
+	RewardRecomputationProgress(RewardRecomputationState state, long totalUsers, long processedUsers, long skippedUsers,
+			long failedBatches, double usersPerSecond, Long etaSeconds, Instant startedAt, Instant finishedAt) {
+		this.state = state;
+		this.totalUsers = totalUsers;
+		this.processedUsers = processedUsers;
+		this.skippedUsers = skippedUsers;
+		this.failedBatches = failedBatches;
+		this.usersPerSecond = usersPerSecond;
+		this.etaSeconds = etaSeconds;
+		this.startedAt = startedAt;
+		this.finishedAt = finishedAt;
+	}
+
+	public RewardRecomputationState getState() {
+		return state;
+	}
+
+	/**
+	 * Users in the registry when the run started
+	 */
+	public long getTotalUsers() {
+		return totalUsers;
+	}
+
+	/**
+	 * Users evaluated by the pipeline or skipped so far
+	 */
+	public long getProcessedUsers() {
+		return processedUsers;
+	}
+
+	/**
+	 * Users whose rewards were already up to date, including the ones done by a previous run
+	 */
+	public long getSkippedUsers() {
+		return skippedUsers;
+	}
+
+	/**
+	 * Pipeline batches that failed while evaluating users of the run, these users are left to the next run
+	 */
+	public long getFailedBatches() {
+		return failedBatches;
+	}
+
+	public double getUsersPerSecond() {
+		return usersPerSecond;
+	}
+
+	/**
+	 * Estimated time left at the current throughput, null when unknown or not running
+	 */
+	public Long getEtaSeconds() {
+		return etaSeconds;
+	}
+
+	public Instant getStartedAt() {
+		return startedAt;
+	}
+
+	public Instant getFinishedAt() {
+		return finishedAt;
+	}
+
+}
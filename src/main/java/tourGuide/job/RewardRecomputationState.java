@@ -0,0 +1,9 @@
+package tourGuide.job;
+
+public enum RewardRecomputationState {
+	IDLE,
+	RUNNING,
+	COMPLETED,
+	CANCELLED,
+	FAILED
+}
@@ -0,0 +1,86 @@
+package tourGuide.metrics;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Names of the application meters and helpers to register them.
+ * Meters go to the global registry, which Spring Boot connects to the actuator registries,
+ * so services built outside of Spring (tests, benchmarks) do not need a registry to be passed around.
+ * The gauges read the object they were registered with, so their owner removes them when it stops:
+ * the next instance registering the same name and tags then gets its own gauge instead of the stale one.
+ */
+public final class TourGuideMetrics {
+
+	public static final String BACKEND_CALLS = "tourguide.backend.calls";
+	public static final String BACKEND_WAIT = "tourguide.backend.wait";
+	public static final String BACKEND_LIMIT = "tourguide.backend.limit";
+	public static final String BACKEND_IN_FLIGHT = "tourguide.backend.in.flight";
+	public static final String BACKEND_WAITING = "tourguide.backend.waiting";
+	public static final String REWARDS_CALCULATION = "tourguide.rewards.calculation";
+	public static final String REWARDS_CALCULATION_BATCH = "tourguide.rewards.calculation.batch";
+	public static final String TRACKER_CYCLE = "tourguide.tracker.cycle";
+	public static final String TRACKER_LAG = "tourguide.tracker.lag";
+	public static final String EXECUTOR_QUEUE_DEPTH = "tourguide.executor.queue.depth";
+	public static final String EXECUTOR_ACTIVE_THREADS = "tourguide.executor.active.threads";
+	public static final String WORK_QUEUE_DEPTH = "tourguide.work.queue.depth";
+	public static final String WORK_QUEUE_DROPPED = "tourguide.work.queue.dropped";
+	public static final String WORK_QUEUE_COALESCED = "tourguide.work.queue.coalesced";
+	public static final String WORK_QUEUE_REJECTED = "tourguide.work.queue.rejected";
+	public static final String JOURNAL_QUEUE_DEPTH = "tourguide.journal.queue.depth";
+	public static final String JOURNAL_DROPPED_RECORDS = "tourguide.journal.dropped.records";
+	public static final String PIPELINE_DEPTH = "tourguide.pipeline.depth";
+	public static final String PIPELINE_EVENTS = "tourguide.pipeline.events";
+	public static final String PIPELINE_BATCHES = "tourguide.pipeline.batches";
+
+	private static final double[] PERCENTILES = {0.5, 0.99};
+
+	private TourGuideMetrics() {
+	}
+
+	public static MeterRegistry registry() {
+		return Metrics.globalRegistry;
+	}
+
+	/**
+	 * Timer publishing p50, p99, max and a histogram for Prometheus
+	 */
+	public static Timer timer(String name, String... tags) {
+		return Timer.builder(name)
+				.tags(tags)
+				.publishPercentiles(PERCENTILES)
+				.publishPercentileHistogram()
+				.register(registry());
+	}
+
+	/**
+	 * Queue depth and active threads of an executor backed by a thread pool.
+	 * Executors starting a virtual thread per task have neither, their load shows in the backend gauges.
+	 * @return the registered gauges, to remove once the executor is shut down
+	 */
+	public static List<Meter> monitor(ExecutorService executor, String name) {
+		if (executor instanceof ThreadPoolExecutor pool) {
+			return List.of(
+					Gauge.builder(EXECUTOR_QUEUE_DEPTH, pool, p -> p.getQueue().size())
+							.tag("executor", name)
+							.register(registry()),
+					Gauge.builder(EXECUTOR_ACTIVE_THREADS, pool, ThreadPoolExecutor::getActiveCount)
+							.tag("executor", name)
+							.register(registry()));
+		}
+		return List.of();
+	}
+
+	public static void remove(Collection<? extends Meter> meters) {
+		meters.forEach(registry()::remove);
+	}
+
+}
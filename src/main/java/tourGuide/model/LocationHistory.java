@@ -0,0 +1,91 @@
+package tourGuide.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import gpsUtil.location.VisitedLocation;
+
+/**
+ * Last visited locations of a user, kept in a ring buffer of fixed capacity so memory stays bounded.
+ * Each location gets a sequence number (0 for the first one ever added) that keeps increasing when older
+ * locations are overwritten, so readers can ask for the locations added since a given sequence.
+ * Writers are serialized on the history itself, readers never lock.
+ */
+public class LocationHistory {
+
+	private final int capacity;
+	private final AtomicReferenceArray<VisitedLocation> slots;
+	private volatile long appendedCount = 0;
+	private volatile long startedWrites = 0;
+	private volatile long firstKeptSequence = 0;
+	private volatile VisitedLocation latest;
+
+	public LocationHistory(int capacity) {
+		if (capacity < 1) throw new IllegalArgumentException("capacity must be at least 1");
+		this.capacity = capacity;
+		this.slots = new AtomicReferenceArray<>(capacity);
+	}
+
+	public synchronized void add(VisitedLocation visitedLocation) {
+		long sequence = appendedCount;
+		startedWrites = sequence + 1; // tells the readers this slot may be getting overwritten
+		slots.set(slotOf(sequence), visitedLocation);
+		latest = visitedLocation;
+		appendedCount = sequence + 1; // publishes the slot to the readers
+	}
+
+	public synchronized void clear() {
+		firstKeptSequence = appendedCount;
+		latest = null;
+		for (int i = 0; i < capacity; i++) {
+			slots.set(i, null);
+		}
+	}
+
+	public Optional<VisitedLocation> latest() {
+		return Optional.ofNullable(latest);
+	}
+
+	/**
+	 * Sequence number that the next location will get
+	 */
+	public long getAppendedCount() {
+		return appendedCount;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public List<VisitedLocation> snapshot() {
+		return snapshot(0, appendedCount);
+	}
+
+	/**
+	 * Copy of the locations with a sequence number in [fromSequence, toSequence) that are still in the buffer
+	 */
+	public List<VisitedLocation> snapshot(long fromSequence, long toSequence) {
+		long end = Math.min(toSequence, appendedCount);
+		long start = Math.max(fromSequence, Math.max(firstKeptSequence, end - capacity));
+		if (start >= end) return Collections.emptyList();
+
+		List<VisitedLocation> copy = new ArrayList<>((int) (end - start));
+		for (long sequence = start; sequence < end; sequence++) {
+			copy.add(slots.get(slotOf(sequence)));
+		}
+
+		// a writer may have reused the first slots while they were copied, those are dropped
+		long overwritten = startedWrites - capacity - start;
+		long cleared = firstKeptSequence - start;
+		int dropped = (int) Math.max(0, Math.min(copy.size(), Math.max(overwritten, cleared)));
+		return Collections.unmodifiableList(dropped == 0 ? copy : copy.subList(dropped, copy.size()));
+	}
+
+	private int slotOf(long sequence) {
+		return (int) (sequence % capacity);
+	}
+
+}
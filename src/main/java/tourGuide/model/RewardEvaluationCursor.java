@@ -0,0 +1,54 @@
+package tourGuide.model;
+
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Remembers how far the rewards of a user have been evaluated, so that the next pass
+ * only looks at the locations visited since then.
+ * It also keeps the attraction fences the last evaluated location was in, so that a reward is only
+ * looked for when the user enters a fence.
+ * It is only valid for the attractions version and proximity buffer it was computed with.
+ */
+public final class RewardEvaluationCursor {
+
+	public static final RewardEvaluationCursor START = new RewardEvaluationCursor(0, -1, -1, Set.of());
+
+	private final long evaluatedLocations;
+	private final long attractionsVersion;
+	private final int proximityBuffer;
+	private final Set<UUID> insideFences;
+
+	public RewardEvaluationCursor(long evaluatedLocations, long attractionsVersion, int proximityBuffer, Set<UUID> insideFences) {
+		this.evaluatedLocations = evaluatedLocations;
+		this.attractionsVersion = attractionsVersion;
+		this.proximityBuffer = proximityBuffer;
+		this.insideFences = Set.copyOf(insideFences);
+	}
+
+	/**
+	 * Sequence number, in the user's LocationHistory, of the first location not evaluated yet
+	 */
+	public long getEvaluatedLocations() {
+		return evaluatedLocations;
+	}
+
+	/**
+	 * Ids of the attractions whose fence contains the last evaluated location
+	 */
+	public Set<UUID> getInsideFences() {
+		return insideFences;
+	}
+
+	public boolean isValidFor(long attractionsVersion, int proximityBuffer) {
+		return this.attractionsVersion == attractionsVersion && this.proximityBuffer == proximityBuffer;
+	}
+
+	/**
+	 * True when the other cursor is for the same attractions and proximity buffer, and has evaluated more locations
+	 */
+	public boolean isBehind(RewardEvaluationCursor other) {
+		return other.isValidFor(attractionsVersion, proximityBuffer) && evaluatedLocations < other.evaluatedLocations;
+	}
+
+}
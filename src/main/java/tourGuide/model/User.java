@@ -1,25 +1,41 @@
 package tourGuide.model;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
+import gpsUtil.location.Attraction;
 import gpsUtil.location.VisitedLocation;
 import tripPricer.Provider;
 
+import static tourGuide.TourGuideConfiguration.LOCATION_HISTORY_CAPACITY;
+
 public class User {
 	private final UUID userId;
 	private final String userName;
 	private String phoneNumber;
 	private String emailAddress;
-	private Date latestLocationTimestamp;
-	private final List<VisitedLocation> visitedLocations = new ArrayList<>();
-	private final List<UserReward> userRewards = new ArrayList<>();
+	private volatile Date latestLocationTimestamp;
+	private final LocationHistory visitedLocations;
+	// rewards are indexed by attraction for deduplication, and listed in insertion order for the responses
+	private final Map<UUID, UserReward> rewardsByAttraction = new ConcurrentHashMap<>();
+	private final List<UserReward> userRewards = new CopyOnWriteArrayList<>();
+	private final AtomicInteger rewardPointsTotal = new AtomicInteger();
 	private UserPreferences userPreferences = new UserPreferences();
 	private List<Provider> tripDeals = new ArrayList<>();
+	private final AtomicReference<RewardEvaluationCursor> rewardEvaluationCursor = new AtomicReference<>(RewardEvaluationCursor.START);
 	public User(UUID userId, String userName, String phoneNumber, String emailAddress) {
+		this(userId, userName, phoneNumber, emailAddress, LOCATION_HISTORY_CAPACITY);
+	}
+
+	public User(UUID userId, String userName, String phoneNumber, String emailAddress, int locationHistoryCapacity) {
 		this.userId = userId;
 		this.userName = userName;
 		this.phoneNumber = phoneNumber;
 		this.emailAddress = emailAddress;
+		this.visitedLocations = new LocationHistory(locationHistoryCapacity);
 	}
 	
 	public UUID getUserId() {
@@ -54,11 +70,33 @@ public class User {
 		return latestLocationTimestamp;
 	}
 	
+	/**
+	 * Adds a location to the history without touching the latest location timestamp,
+	 * like the generated locations of the internal users
+	 */
 	public void addToVisitedLocations(VisitedLocation visitedLocation) {
 		visitedLocations.add(visitedLocation);
 	}
+
+	/**
+	 * Adds a location given by GpsUtil, the freshness of the stored location is then counted from its time
+	 */
+	public void addTrackedLocation(VisitedLocation visitedLocation) {
+		// under the lock of the history, so the timestamp is always the one of the latest location
+		synchronized (visitedLocations) {
+			visitedLocations.add(visitedLocation);
+			latestLocationTimestamp = visitedLocation.timeVisited;
+		}
+	}
 	
+	/**
+	 * Copy of the locations currently kept in the history, oldest first
+	 */
 	public List<VisitedLocation> getVisitedLocations() {
+		return visitedLocations.snapshot();
+	}
+
+	public LocationHistory getLocationHistory() {
 		return visitedLocations;
 	}
 	
@@ -66,17 +104,33 @@ public class User {
 		visitedLocations.clear();
 	}
 
+	/**
+	 * Adds the reward unless the user already has one for the same attraction
+	 */
 	public void addUserReward(UserReward userReward) {
-		for (UserReward existingReward : userRewards) {
-			if (existingReward.attraction.attractionName.equals(userReward.attraction.attractionName)) {
-				return; // already exists
-			}
+		if (rewardsByAttraction.putIfAbsent(userReward.attraction.attractionId, userReward) != null) {
+			return; // already exists
 		}
 		userRewards.add(userReward);
+		rewardPointsTotal.addAndGet(userReward.getRewardPoints());
+	}
+
+	public boolean hasRewardFor(Attraction attraction) {
+		return rewardsByAttraction.containsKey(attraction.attractionId);
 	}
 
+	/**
+	 * Read-only view of the rewards, in the order they were added
+	 */
 	public List<UserReward> getUserRewards() {
-		return userRewards;
+		return Collections.unmodifiableList(userRewards);
+	}
+
+	/**
+	 * Sum of the reward points, as they were when each reward was added
+	 */
+	public int getRewardPointsTotal() {
+		return rewardPointsTotal.get();
 	}
 	
 	public UserPreferences getUserPreferences() {
@@ -88,11 +142,30 @@ public class User {
 	}
 
 	public Optional<VisitedLocation> getLastVisitedLocation() {
-		int size = visitedLocations.size();
-		if (size == 0) return Optional.empty();
-		return Optional.of(visitedLocations.get(size - 1));
+		return visitedLocations.latest();
 	}
 	
+	public RewardEvaluationCursor getRewardEvaluationCursor() {
+		return rewardEvaluationCursor.get();
+	}
+
+	public void setRewardEvaluationCursor(RewardEvaluationCursor rewardEvaluationCursor) {
+		this.rewardEvaluationCursor.set(rewardEvaluationCursor);
+	}
+
+	/**
+	 * Saves the cursor of an evaluation, unless another evaluation got further since it started
+	 * @param from the cursor the evaluation started from
+	 * @return false if the cursor of the other evaluation was kept
+	 */
+	public boolean advanceRewardEvaluationCursor(RewardEvaluationCursor from, RewardEvaluationCursor to) {
+		while (true) {
+			RewardEvaluationCursor current = rewardEvaluationCursor.get();
+			if (current != from && !current.isBehind(to)) return false;
+			if (rewardEvaluationCursor.compareAndSet(current, to)) return true;
+		}
+	}
+
 	public void setTripDeals(List<Provider> tripDeals) {
 		this.tripDeals = tripDeals;
 	}
@@ -0,0 +1,126 @@
+package tourGuide.persistence;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+
+/**
+ * Segment file of the journal: a sequence of fixed-width records
+ * (user id, latitude, longitude, epoch millis) followed by zeros up to the end of the file.
+ * Only the segment being written is mapped, the others are read and written through the channel,
+ * so that no mapping outlives its use: a mapping is only released once its buffer is garbage collected.
+ */
+final class JournalSegment {
+
+	static final int RECORD_BYTES = 5 * Long.BYTES;
+	static final String EXTENSION = ".segment";
+
+	private JournalSegment() {
+	}
+
+	/**
+	 * Creates the segment file and maps it in memory for writing
+	 */
+	static MappedByteBuffer create(Path file, int records) {
+		try (FileChannel channel = FileChannel.open(file,
+				StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			return channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) records * RECORD_BYTES);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Maps an existing segment for writing, positioned after its written records
+	 */
+	static MappedByteBuffer reopen(Path file, int writtenRecords) {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+			buffer.position(writtenRecords * RECORD_BYTES);
+			return buffer;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Writes a complete segment file, without mapping it
+	 */
+	static void writeAll(Path file, List<VisitedLocation> visitedLocations) {
+		ByteBuffer buffer = ByteBuffer.allocate(visitedLocations.size() * RECORD_BYTES);
+		visitedLocations.forEach(visitedLocation -> write(buffer, visitedLocation));
+		buffer.flip();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			channel.force(false);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	static void write(ByteBuffer buffer, VisitedLocation visitedLocation) {
+		buffer.putLong(visitedLocation.userId.getMostSignificantBits());
+		buffer.putLong(visitedLocation.userId.getLeastSignificantBits());
+		buffer.putDouble(visitedLocation.location.latitude);
+		buffer.putDouble(visitedLocation.location.longitude);
+		buffer.putLong(visitedLocation.timeVisited.getTime());
+	}
+
+	/**
+	 * Reads the segment into the heap, segments are at most a few tens of megabytes
+	 */
+	static List<VisitedLocation> read(Path file) {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(channel.size()));
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer) < 0) break;
+			}
+			buffer.flip();
+			List<VisitedLocation> visitedLocations = new ArrayList<>(buffer.remaining() / RECORD_BYTES);
+			while (buffer.remaining() >= RECORD_BYTES) {
+				long mostSignificantBits = buffer.getLong();
+				long leastSignificantBits = buffer.getLong();
+				if (mostSignificantBits == 0 && leastSignificantBits == 0) break; // end of the written records
+				double latitude = buffer.getDouble();
+				double longitude = buffer.getDouble();
+				long timeVisited = buffer.getLong();
+				visitedLocations.add(new VisitedLocation(new UUID(mostSignificantBits, leastSignificantBits),
+						new Location(latitude, longitude), new Date(timeVisited)));
+			}
+			return visitedLocations;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	static Path fileOf(Path directory, long sequence) {
+		return directory.resolve(String.format("%020d", sequence) + EXTENSION);
+	}
+
+	/**
+	 * Sequence number of a segment file, or -1 if the file is not a segment
+	 */
+	static long sequenceOf(Path file) {
+		String name = file.getFileName().toString();
+		if (!name.endsWith(EXTENSION)) return -1;
+		try {
+			return Long.parseLong(name.substring(0, name.length() - EXTENSION.length()));
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+}
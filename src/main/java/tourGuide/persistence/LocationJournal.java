@@ -0,0 +1,54 @@
+package tourGuide.persistence;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import gpsUtil.location.VisitedLocation;
+
+/**
+ * Durable record of the tracked locations, so the histories of the users survive a restart
+ */
+public interface LocationJournal {
+
+	/**
+	 * Journal keeping nothing, used when persistence is disabled
+	 */
+	LocationJournal DISABLED = new LocationJournal() {
+		@Override
+		public void append(VisitedLocation visitedLocation) {
+		}
+
+		@Override
+		public Map<UUID, List<VisitedLocation>> load() {
+			return Collections.emptyMap();
+		}
+
+		@Override
+		public void flush() {
+		}
+
+		@Override
+		public void close() {
+		}
+	};
+
+	/**
+	 * Records the location without waiting for it to be written
+	 */
+	void append(VisitedLocation visitedLocation);
+
+	/**
+	 * Locations recorded so far for each user, oldest first. Meant to be called once, on startup.
+	 */
+	Map<UUID, List<VisitedLocation>> load();
+
+	/**
+	 * Waits until the locations appended so far are written
+	 */
+	void flush();
+
+	void close();
+
+}
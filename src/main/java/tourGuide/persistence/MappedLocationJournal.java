@@ -0,0 +1,331 @@
+package tourGuide.persistence;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import tourGuide.concurrent.NamedThreadFactory;
+import tourGuide.metrics.TourGuideMetrics;
+
+/**
+ * Journal appending the locations to memory-mapped segment files of fixed-width records.
+ * Appended locations are queued and written by a background thread, so tracking never waits for the disk.
+ * Sealed segments are compacted in the background, keeping only the last locations of each user.
+ * On opening, the writing goes on in the last segment if it has room left, instead of starting a new one.
+ * A compaction is made crash-safe by publishing its result as a ".compacted" file before removing
+ * the segments it replaces: an interrupted compaction is finished when the journal is opened again.
+ */
+public class MappedLocationJournal implements LocationJournal {
+	private final Logger logger = LoggerFactory.getLogger(MappedLocationJournal.class);
+
+	private static final String COMPACTED_EXTENSION = ".compacted";
+	private static final String TEMPORARY_EXTENSION = ".tmp";
+	private static final int WRITE_BATCH_SIZE = 1024;
+	// tells the writer to stop, compared by reference
+	private static final VisitedLocation END_OF_JOURNAL = new VisitedLocation(new UUID(0, 0), new Location(0, 0), new Date(0));
+
+	private final Path directory;
+	private final int recordsPerSegment;
+	private final int keptLocationsPerUser;
+	private final BlockingQueue<VisitedLocation> queue;
+	private final ScheduledExecutorService compactionScheduler =
+			Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("location-journal-compaction"));
+	// started by open(), once the journal is fully built
+	private Thread writer;
+	private final AtomicLong enqueuedRecords = new AtomicLong();
+	private final LongAdder droppedRecords = new LongAdder();
+	private final Object writtenLock = new Object();
+	private long writtenRecords = 0;
+	// sequence of the segment being written, every segment before it is sealed
+	private volatile long activeSequence;
+	private volatile MappedByteBuffer activeSegment;
+	private volatile boolean closed = false;
+	private final List<Meter> meters = new ArrayList<>();
+
+	private MappedLocationJournal(Path directory, int recordsPerSegment, int queueCapacity, int keptLocationsPerUser) {
+		this.directory = directory;
+		this.recordsPerSegment = recordsPerSegment;
+		this.keptLocationsPerUser = keptLocationsPerUser;
+		this.queue = new ArrayBlockingQueue<>(queueCapacity);
+		try {
+			Files.createDirectories(directory);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		recover();
+		List<Path> segments = segments();
+		if (segments.isEmpty()) {
+			this.activeSequence = 1;
+		} else {
+			// the segment is created on the first write, unless the last one has room left
+			Path last = segments.get(segments.size() - 1);
+			this.activeSequence = JournalSegment.sequenceOf(last);
+			this.activeSegment = JournalSegment.reopen(last, JournalSegment.read(last).size());
+		}
+	}
+
+	/**
+	 * Opens the journal in the directory, then starts its writer and its compactions
+	 * @param compactionInterval 0 or less to never compact in the background
+	 */
+	public static MappedLocationJournal open(Path directory, int recordsPerSegment, int queueCapacity, int keptLocationsPerUser,
+											 long compactionInterval, TimeUnit timeUnit) {
+		MappedLocationJournal journal = new MappedLocationJournal(directory, recordsPerSegment, queueCapacity, keptLocationsPerUser);
+		journal.start(compactionInterval, timeUnit);
+		return journal;
+	}
+
+	private void start(long compactionInterval, TimeUnit timeUnit) {
+		meters.add(Gauge.builder(TourGuideMetrics.JOURNAL_QUEUE_DEPTH, queue, BlockingQueue::size)
+				.register(TourGuideMetrics.registry()));
+		meters.add(FunctionCounter.builder(TourGuideMetrics.JOURNAL_DROPPED_RECORDS, droppedRecords, LongAdder::sum)
+				.register(TourGuideMetrics.registry()));
+
+		writer = new NamedThreadFactory("location-journal-writer").newThread(this::writeQueuedLocations);
+		writer.start();
+		if (compactionInterval > 0) {
+			compactionScheduler.scheduleWithFixedDelay(this::compactQuietly, compactionInterval, compactionInterval, timeUnit);
+		}
+	}
+
+	/**
+	 * Queues the location for the writer. It is dropped, and counted, when the queue is full or the journal closed.
+	 */
+	@Override
+	public void append(VisitedLocation visitedLocation) {
+		if (!closed && queue.offer(visitedLocation)) {
+			// closed in between: the close may already have emptied the queue, the record would never be written
+			if (closed && queue.remove(visitedLocation)) {
+				droppedRecords.increment();
+				return;
+			}
+			enqueuedRecords.incrementAndGet();
+		} else {
+			droppedRecords.increment();
+		}
+	}
+
+	/**
+	 * Reads every segment in parallel, then puts their locations together in segment order
+	 */
+	@Override
+	public Map<UUID, List<VisitedLocation>> load() {
+		List<Map<UUID, List<VisitedLocation>>> segmentsByUser = segments().parallelStream()
+				.map(segment -> JournalSegment.read(segment).stream()
+						.collect(Collectors.groupingBy(visitedLocation -> visitedLocation.userId)))
+				.collect(Collectors.toList());
+
+		Map<UUID, List<VisitedLocation>> byUser = new HashMap<>();
+		for (Map<UUID, List<VisitedLocation>> segment : segmentsByUser) {
+			segment.forEach((userId, visitedLocations) ->
+					byUser.computeIfAbsent(userId, k -> new ArrayList<>()).addAll(visitedLocations));
+		}
+		byUser.replaceAll((userId, visitedLocations) -> lastLocations(visitedLocations));
+		logger.debug("Loaded the locations of {} users from the journal", byUser.size());
+		return byUser;
+	}
+
+	@Override
+	public void flush() {
+		long target = enqueuedRecords.get();
+		synchronized (writtenLock) {
+			while (writtenRecords < target && writer.isAlive()) {
+				try {
+					writtenLock.wait(100);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+		MappedByteBuffer segment = activeSegment;
+		if (segment != null) segment.force();
+	}
+
+	@Override
+	public void close() {
+		if (closed) return;
+		closed = true;
+		compactionScheduler.shutdownNow();
+		try {
+			queue.put(END_OF_JOURNAL);
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		// appended while closing, behind the end of the journal
+		while (queue.poll() != null) {
+			droppedRecords.increment();
+		}
+		MappedByteBuffer segment = activeSegment;
+		if (segment != null) segment.force();
+		activeSegment = null; // lets the mapping go with the buffer
+		TourGuideMetrics.remove(meters);
+	}
+
+	/**
+	 * Replaces the sealed segments with a single one holding the last locations of each user
+	 */
+	public synchronized void compact() {
+		long active = activeSequence;
+		List<Path> sealed = segments().stream()
+				.filter(segment -> JournalSegment.sequenceOf(segment) < active)
+				.collect(Collectors.toList());
+		if (sealed.size() < 2) return;
+
+		Map<UUID, List<VisitedLocation>> byUser = new LinkedHashMap<>();
+		for (Path segment : sealed) {
+			for (VisitedLocation visitedLocation : JournalSegment.read(segment)) {
+				byUser.computeIfAbsent(visitedLocation.userId, k -> new ArrayList<>()).add(visitedLocation);
+			}
+		}
+		List<VisitedLocation> kept = new ArrayList<>();
+		byUser.values().forEach(visitedLocations -> kept.addAll(lastLocations(visitedLocations)));
+
+		Path last = sealed.get(sealed.size() - 1);
+		Path temporary = withExtension(last, TEMPORARY_EXTENSION);
+		try {
+			Files.deleteIfExists(temporary);
+			JournalSegment.writeAll(temporary, kept);
+			Path compacted = Files.move(temporary, withExtension(last, COMPACTED_EXTENSION), StandardCopyOption.ATOMIC_MOVE);
+			finishCompaction(compacted);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		logger.debug("Compacted {} journal segments into {} locations", sealed.size(), kept.size());
+	}
+
+	public int getQueueDepth() {
+		return queue.size();
+	}
+
+	public long getDroppedCount() {
+		return droppedRecords.sum();
+	}
+
+	public int getSegmentCount() {
+		return segments().size();
+	}
+
+	private void writeQueuedLocations() {
+		List<VisitedLocation> batch = new ArrayList<>(WRITE_BATCH_SIZE);
+		try {
+			while (true) {
+				batch.add(queue.take());
+				queue.drainTo(batch, WRITE_BATCH_SIZE - 1);
+				for (int i = 0; i < batch.size(); i++) {
+					if (batch.get(i) == END_OF_JOURNAL) {
+						markWritten(i);
+						droppedRecords.add(batch.size() - i - 1);
+						return;
+					}
+					write(batch.get(i));
+				}
+				markWritten(batch.size());
+				batch.clear();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (RuntimeException e) {
+			logger.error("Location journal writer stopped, locations are no longer persisted", e);
+		}
+	}
+
+	private void write(VisitedLocation visitedLocation) {
+		MappedByteBuffer segment = activeSegment;
+		if (segment == null || segment.remaining() < JournalSegment.RECORD_BYTES) {
+			if (segment != null) {
+				segment.force();
+				activeSequence++;
+			}
+			segment = JournalSegment.create(JournalSegment.fileOf(directory, activeSequence), recordsPerSegment);
+			activeSegment = segment;
+		}
+		JournalSegment.write(segment, visitedLocation);
+	}
+
+	private void markWritten(int records) {
+		synchronized (writtenLock) {
+			writtenRecords += records;
+			writtenLock.notifyAll();
+		}
+	}
+
+	private void compactQuietly() {
+		try {
+			compact();
+		} catch (RuntimeException e) {
+			logger.warn("Could not compact the location journal", e);
+		}
+	}
+
+	/**
+	 * Removes the leftovers of an interrupted compaction, or finishes it if its result was published
+	 */
+	private void recover() {
+		try (Stream<Path> files = Files.list(directory)) {
+			for (Path file : files.sorted().collect(Collectors.toList())) {
+				String name = file.getFileName().toString();
+				if (name.endsWith(TEMPORARY_EXTENSION)) {
+					Files.delete(file);
+				} else if (name.endsWith(COMPACTED_EXTENSION)) {
+					finishCompaction(file);
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Deletes the segments the compacted file replaces, then gives it the name of the last of them
+	 */
+	private void finishCompaction(Path compacted) throws IOException {
+		Path segment = withExtension(compacted, JournalSegment.EXTENSION);
+		long lastSequence = JournalSegment.sequenceOf(segment);
+		for (Path replaced : segments()) {
+			if (JournalSegment.sequenceOf(replaced) <= lastSequence) {
+				Files.delete(replaced);
+			}
+		}
+		Files.move(compacted, segment, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private List<VisitedLocation> lastLocations(List<VisitedLocation> visitedLocations) {
+		int size = visitedLocations.size();
+		if (size <= keptLocationsPerUser) return visitedLocations;
+		return new ArrayList<>(visitedLocations.subList(size - keptLocationsPerUser, size));
+	}
+
+	private List<Path> segments() {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.filter(file -> JournalSegment.sequenceOf(file) >= 0)
+					.sorted(Comparator.comparingLong(JournalSegment::sequenceOf))
+					.collect(Collectors.toList());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static Path withExtension(Path file, String extension) {
+		String name = file.getFileName().toString();
+		return file.resolveSibling(name.substring(0, name.lastIndexOf('.')) + extension);
+	}
+
+}
@@ -0,0 +1,91 @@
+package tourGuide.pipeline;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded ring of events, preallocated once, that any number of threads can offer to and a single thread drains.
+ * Each slot has a sequence number telling whether it is free for the producer of a given position
+ * or published for the consumer, so neither side ever locks or allocates.
+ */
+public class EventRing<E> {
+
+	private final int mask;
+	private final Object[] slots;
+	private final AtomicLongArray sequences;
+	private final AtomicLong tail = new AtomicLong();
+	private volatile long head = 0; // only written by the consumer
+
+	/**
+	 * @param capacity rounded up to a power of two
+	 */
+	public EventRing(int capacity) {
+		if (capacity < 1) throw new IllegalArgumentException("capacity must be at least 1");
+		int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+		this.mask = size - 1;
+		this.slots = new Object[size];
+		this.sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++) {
+			sequences.set(i, i);
+		}
+	}
+
+	/**
+	 * @return false if the ring is full
+	 */
+	public boolean offer(E event) {
+		while (true) {
+			long position = tail.get();
+			int index = (int) position & mask;
+			long lag = sequences.get(index) - position;
+			if (lag == 0) {
+				if (tail.compareAndSet(position, position + 1)) {
+					slots[index] = event;
+					sequences.set(index, position + 1); // publishes the slot to the consumer
+					return true;
+				}
+			} else if (lag < 0) {
+				return false; // the consumer has not freed this slot yet
+			}
+			// another producer took this position, try the next one
+		}
+	}
+
+	/**
+	 * Moves up to max published events to the target, in the order they were offered.
+	 * Must only be called by the consumer thread.
+	 */
+	@SuppressWarnings("unchecked")
+	public int drainTo(Collection<? super E> target, int max) {
+		long position = head;
+		int drained = 0;
+		while (drained < max) {
+			int index = (int) position & mask;
+			if (sequences.get(index) != position + 1) break;
+			target.add((E) slots[index]);
+			slots[index] = null;
+			sequences.set(index, position + mask + 1); // frees the slot for the next lap
+			position++;
+			drained++;
+		}
+		head = position;
+		return drained;
+	}
+
+	/**
+	 * Events offered and not drained yet, including the ones still being written
+	 */
+	public int size() {
+		return (int) Math.max(0, tail.get() - head);
+	}
+
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	public int getCapacity() {
+		return mask + 1;
+	}
+
+}
@@ -0,0 +1,268 @@
+package tourGuide.pipeline;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+
+import tourGuide.concurrent.NamedThreadFactory;
+import tourGuide.metrics.TourGuideMetrics;
+import tourGuide.model.User;
+
+/**
+ * Stage between the location ingestion and the reward evaluation.
+ * Tracking threads publish the users that got a new location into the ring of one worker, chosen by user id,
+ * and each worker hands the users it drained to the batch handler, once per user even if several of their
+ * locations arrived in the meantime. As a user always goes to the same worker, batches never overlap for a user.
+ * Publishers are counted while they write into a ring, so that the stop drains the rings only once none is left.
+ */
+public class LocationEventPipeline {
+	private final Logger logger = LoggerFactory.getLogger(LocationEventPipeline.class);
+
+	private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+	private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+	private final String name;
+	private final Consumer<Collection<User>> batchHandler;
+	private final int batchSize;
+	private final Worker[] workers;
+	private final LongAdder publishedEvents = new LongAdder();
+	private final LongAdder handledBatches = new LongAdder();
+	private final LongAdder fullRingWaits = new LongAdder();
+	private final List<Meter> meters = new ArrayList<>();
+	private final AtomicInteger activePublishers = new AtomicInteger();
+	private final CountDownLatch stopped = new CountDownLatch(1);
+	private final Object inlineLock = new Object();
+	private final List<BatchListener> batchListeners = new CopyOnWriteArrayList<>();
+	private volatile boolean running = true;
+
+	private LocationEventPipeline(String name, int workerCount, int ringCapacity, int batchSize,
+			Consumer<Collection<User>> batchHandler) {
+		this.name = name;
+		this.batchHandler = batchHandler;
+		this.batchSize = batchSize;
+		this.workers = new Worker[workerCount];
+		for (int i = 0; i < workerCount; i++) {
+			workers[i] = new Worker(new EventRing<>(ringCapacity));
+		}
+	}
+
+	/**
+	 * Builds the pipeline, then starts its workers and registers its meters
+	 */
+	public static LocationEventPipeline start(String name, int workerCount, int ringCapacity, int batchSize,
+			Consumer<Collection<User>> batchHandler) {
+		LocationEventPipeline pipeline = new LocationEventPipeline(name, workerCount, ringCapacity, batchSize, batchHandler);
+		pipeline.startWorkers();
+		pipeline.registerMeters();
+		return pipeline;
+	}
+
+	private void startWorkers() {
+		NamedThreadFactory threadFactory = new NamedThreadFactory(name);
+		for (Worker worker : workers) {
+			worker.thread = threadFactory.newThread(worker);
+		}
+		for (Worker worker : workers) {
+			worker.thread.start();
+		}
+	}
+
+	private void registerMeters() {
+		meters.add(Gauge.builder(TourGuideMetrics.PIPELINE_DEPTH, this, LocationEventPipeline::getDepth)
+				.tag("pipeline", name)
+				.register(TourGuideMetrics.registry()));
+		meters.add(FunctionCounter.builder(TourGuideMetrics.PIPELINE_EVENTS, publishedEvents, LongAdder::sum)
+				.tag("pipeline", name)
+				.register(TourGuideMetrics.registry()));
+		meters.add(FunctionCounter.builder(TourGuideMetrics.PIPELINE_BATCHES, handledBatches, LongAdder::sum)
+				.tag("pipeline", name)
+				.register(TourGuideMetrics.registry()));
+	}
+
+	/**
+	 * Waits while the ring of the user is full.
+	 * Once the pipeline is stopping, the user is handled on the calling thread after the last drain,
+	 * one user at a time so that it never overlaps with another batch of the same user.
+	 */
+	public void publish(User user) {
+		if (offer(user)) return;
+		try {
+			stopped.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+		synchronized (inlineLock) {
+			handle(List.of(user));
+		}
+	}
+
+	/**
+	 * Tells the listener about every batch handled from now on, see BatchListener
+	 */
+	public void addBatchListener(BatchListener listener) {
+		batchListeners.add(listener);
+	}
+
+	public void removeBatchListener(BatchListener listener) {
+		batchListeners.remove(listener);
+	}
+
+	/**
+	 * @return false if the pipeline is stopping and the user was not published
+	 */
+	private boolean offer(User user) {
+		// counted before reading running: either the stop sees this publisher, or this publisher sees the stop
+		activePublishers.incrementAndGet();
+		try {
+			if (!running) return false;
+			Worker worker = workers[Math.floorMod(user.getUserId().hashCode(), workers.length)];
+			while (!worker.ring.offer(user)) {
+				if (!running) return false; // the worker may have exited, nothing would make room anymore
+				fullRingWaits.increment();
+				LockSupport.unpark(worker.thread);
+				LockSupport.parkNanos(FULL_PARK_NANOS);
+			}
+			publishedEvents.increment();
+			if (worker.idle) {
+				LockSupport.unpark(worker.thread);
+			}
+			return true;
+		} finally {
+			activePublishers.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Lets the workers handle every event already published, then stops them
+	 */
+	public void drainAndStop() {
+		running = false;
+		for (Worker worker : workers) {
+			LockSupport.unpark(worker.thread);
+		}
+		for (Worker worker : workers) {
+			try {
+				worker.thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			}
+		}
+		// publishers that saw the pipeline running are done writing, or are giving up on a full ring
+		while (activePublishers.get() > 0) {
+			LockSupport.parkNanos(FULL_PARK_NANOS);
+		}
+		// events published while the workers were exiting, this thread is now the only consumer
+		synchronized (inlineLock) {
+			for (Worker worker : workers) {
+				Set<User> left = new LinkedHashSet<>();
+				worker.ring.drainTo(left, Integer.MAX_VALUE);
+				if (!left.isEmpty()) handle(left);
+			}
+		}
+		stopped.countDown();
+		TourGuideMetrics.remove(meters);
+	}
+
+	/**
+	 * Events published and not handled yet
+	 */
+	public int getDepth() {
+		int depth = 0;
+		for (Worker worker : workers) {
+			depth += worker.ring.size();
+		}
+		return depth;
+	}
+
+	public long getPublishedCount() {
+		return publishedEvents.sum();
+	}
+
+	public long getBatchCount() {
+		return handledBatches.sum();
+	}
+
+	/**
+	 * Number of times a publisher had to wait for room in a ring
+	 */
+	public long getFullRingWaitCount() {
+		return fullRingWaits.sum();
+	}
+
+	private void handle(Collection<User> users) {
+		RuntimeException failure = null;
+		try {
+			batchHandler.accept(users);
+		} catch (RuntimeException e) {
+			logger.warn("Could not handle a batch of {} users", users.size(), e);
+			failure = e;
+		}
+		handledBatches.increment();
+		for (BatchListener listener : batchListeners) {
+			listener.batchHandled(users, failure);
+		}
+	}
+
+	/**
+	 * Called on the thread that handled a batch, once the batch handler has returned
+	 */
+	public interface BatchListener {
+		/**
+		 * @param users the users of the batch, only valid during the call
+		 * @param failure what the batch handler threw, null if it returned normally
+		 */
+		void batchHandled(Collection<User> users, RuntimeException failure);
+	}
+
+	private final class Worker implements Runnable {
+		final EventRing<User> ring;
+		Thread thread;
+		volatile boolean idle = false;
+
+		// reused between batches, only touched by the worker thread
+		private final List<User> drained = new ArrayList<>();
+		private final Set<User> batch = new LinkedHashSet<>();
+
+		Worker(EventRing<User> ring) {
+			this.ring = ring;
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				if (ring.drainTo(drained, batchSize) > 0) {
+					batch.addAll(drained);
+					drained.clear();
+					handle(batch);
+					batch.clear();
+					continue;
+				}
+				if (!ring.isEmpty()) {
+					Thread.onSpinWait(); // a publisher is still writing its event
+					continue;
+				}
+				if (!running) return;
+				idle = true;
+				if (ring.isEmpty() && running) {
+					LockSupport.parkNanos(IDLE_PARK_NANOS);
+				}
+				idle = false;
+			}
+		}
+	}
+
+}
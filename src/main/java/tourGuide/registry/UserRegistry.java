@@ -0,0 +1,188 @@
+package tourGuide.registry;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import tourGuide.model.User;
+
+/**
+ * Thread-safe store of the users, split in shards by user name, with a second index sorted by user id.
+ * Iteration goes over the shards in place without copying the users, and its spliterator splits
+ * along the shards so parallel streams and bulk jobs can share the work.
+ * The sorted index gives a stable order to page through the users while others register.
+ */
+public class UserRegistry implements Iterable<User> {
+
+	private final List<ConcurrentHashMap<String, User>> shards;
+	private final ConcurrentSkipListMap<UUID, User> usersById = new ConcurrentSkipListMap<>();
+
+	public UserRegistry(int shardCount) {
+		if (shardCount < 1) throw new IllegalArgumentException("shardCount must be at least 1");
+		List<ConcurrentHashMap<String, User>> shards = new ArrayList<>(shardCount);
+		for (int i = 0; i < shardCount; i++) {
+			shards.add(new ConcurrentHashMap<>());
+		}
+		this.shards = Collections.unmodifiableList(shards);
+	}
+
+	/**
+	 * Adds the user unless its name or its id is already registered
+	 * @return true if the user was added
+	 */
+	public boolean register(User user) {
+		// both indexes are updated inside the compute of the name, so a user found by name is
+		// already in the id index and never removed again
+		boolean[] added = new boolean[1];
+		shardOf(user.getUserName()).compute(user.getUserName(), (userName, registered) -> {
+			if (registered != null) return registered;
+			if (usersById.putIfAbsent(user.getUserId(), user) != null) return null;
+			added[0] = true;
+			return user;
+		});
+		return added[0];
+	}
+
+	public Optional<User> findByName(String userName) {
+		return Optional.ofNullable(shardOf(userName).get(userName));
+	}
+
+	public Optional<User> findById(UUID userId) {
+		return Optional.ofNullable(usersById.get(userId));
+	}
+
+	/**
+	 * Live view of the users with an id greater than the given one, in id order
+	 * @param afterUserId null to start from the first user
+	 */
+	public Collection<User> usersAfter(UUID afterUserId) {
+		return Collections.unmodifiableCollection(
+				afterUserId == null ? usersById.values() : usersById.tailMap(afterUserId, false).values());
+	}
+
+	public int size() {
+		// the size of a skip list is counted node by node, the shards keep theirs
+		int size = 0;
+		for (ConcurrentHashMap<String, User> shard : shards) {
+			size += shard.size();
+		}
+		return size;
+	}
+
+	public int getShardCount() {
+		return shards.size();
+	}
+
+	/**
+	 * Live read-only view of the users of one shard
+	 */
+	public Collection<User> shard(int index) {
+		return Collections.unmodifiableCollection(shards.get(index).values());
+	}
+
+	@Override
+	public Iterator<User> iterator() {
+		return stream().iterator();
+	}
+
+	@Override
+	public void forEach(Consumer<? super User> action) {
+		for (ConcurrentHashMap<String, User> shard : shards) {
+			shard.values().forEach(action);
+		}
+	}
+
+	/**
+	 * Weakly consistent, like the iterators of ConcurrentHashMap: users registered during the
+	 * iteration may or may not be seen
+	 */
+	@Override
+	public Spliterator<User> spliterator() {
+		return new ShardSpliterator(0, shards.size());
+	}
+
+	public Stream<User> stream() {
+		return StreamSupport.stream(spliterator(), false);
+	}
+
+	public Stream<User> parallelStream() {
+		return StreamSupport.stream(spliterator(), true);
+	}
+
+	private ConcurrentHashMap<String, User> shardOf(String userName) {
+		return shards.get(Math.floorMod(userName.hashCode(), shards.size()));
+	}
+
+	/**
+	 * Covers the shards [from, to), splitting in halves down to a single shard,
+	 * then splitting the shard itself
+	 */
+	private final class ShardSpliterator implements Spliterator<User> {
+		private int from;
+		private final int to;
+		private Spliterator<User> current;
+
+		ShardSpliterator(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super User> action) {
+			while (true) {
+				if (current == null) {
+					if (from >= to) return false;
+					current = shards.get(from++).values().spliterator();
+				}
+				if (current.tryAdvance(action)) return true;
+				current = null;
+			}
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super User> action) {
+			if (current != null) {
+				current.forEachRemaining(action);
+				current = null;
+			}
+			while (from < to) {
+				shards.get(from++).values().forEach(action);
+			}
+		}
+
+		@Override
+		public Spliterator<User> trySplit() {
+			if (current != null) return null; // already iterating a shard
+			int remaining = to - from;
+			if (remaining > 1) {
+				int middle = from + remaining / 2;
+				Spliterator<User> prefix = new ShardSpliterator(from, middle);
+				from = middle;
+				return prefix;
+			}
+			if (remaining == 1) {
+				current = shards.get(from++).values().spliterator();
+				return current.trySplit();
+			}
+			return null;
+		}
+
+		@Override
+		public long estimateSize() {
+			long size = current == null ? 0 : current.estimateSize();
+			for (int i = from; i < to; i++) {
+				size += shards.get(i).size();
+			}
+			return size;
+		}
+
+		@Override
+		public int characteristics() {
+			return Spliterator.NONNULL | Spliterator.CONCURRENT | Spliterator.DISTINCT;
+		}
+	}
+
+}
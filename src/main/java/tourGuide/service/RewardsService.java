@@ -3,6 +3,12 @@ package tourGuide.service;
 import java.util.*;
 import java.util.concurrent.*;
 
+import jakarta.annotation.PreDestroy;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Timer;
+
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import gpsUtil.GpsUtil;
@@ -10,8 +16,21 @@ import gpsUtil.location.Attraction;
 import gpsUtil.location.Location;
 import gpsUtil.location.VisitedLocation;
 import rewardCentral.RewardCentral;
+import tourGuide.TourGuideConfiguration;
+import tourGuide.attraction.AttractionCatalog;
+import tourGuide.attraction.AttractionSnapshot;
+import tourGuide.attraction.GeofenceIndex;
+import tourGuide.cache.RewardPointsCache;
+import tourGuide.concurrent.Backend;
+import tourGuide.concurrent.BackendGateway;
+import tourGuide.concurrent.ExecutionMode;
+import tourGuide.geo.GeoMath;
+import tourGuide.metrics.TourGuideMetrics;
+import tourGuide.model.LocationHistory;
+import tourGuide.model.RewardEvaluationCursor;
 import tourGuide.model.User;
 import tourGuide.model.UserReward;
+import tourGuide.tracker.TokenBucket;
 
 import static tourGuide.TourGuideConfiguration.*;
 
@@ -21,12 +40,58 @@ public class RewardsService {
 	// proximity in miles
     private final int defaultProximityBuffer = DEFAULT_PROXIMITY_BUFFER;
 	private int proximityBuffer = defaultProximityBuffer;
-	private final GpsUtil gpsUtil;
+	private final AttractionCatalog attractionCatalog;
 	private final RewardCentral rewardsCentral;
+	private final ExecutionMode executionMode;
+	private final BackendGateway backendGateway;
+	private final ExecutorService rewardLookupExecutor;
+	private final RewardPointsCache rewardPointsCache =
+			new RewardPointsCache(REWARD_POINTS_CACHE_MAXIMUM_SIZE, REWARD_POINTS_CACHE_TTL_MINUTES, TimeUnit.MINUTES);
+	// time each user waited for its rewards, and time of each batch of users
+	private final Timer calculateRewardsTimer = TourGuideMetrics.timer(TourGuideMetrics.REWARDS_CALCULATION);
+	private final Timer calculateRewardsBatchTimer = TourGuideMetrics.timer(TourGuideMetrics.REWARDS_CALCULATION_BATCH);
+	private final List<Meter> executorMeters;
+	// RewardCentral lookups of some users are paced, like the ones of a reward recomputation run
+	private final Map<User, TokenBucket> lookupThrottles = new ConcurrentHashMap<>();
 
 	public RewardsService(GpsUtil gpsUtil, RewardCentral rewardCentral) {
-		this.gpsUtil = gpsUtil;
+		this(gpsUtil, rewardCentral, DEFAULT_EXECUTION_MODE);
+	}
+
+	@Autowired
+	public RewardsService(GpsUtil gpsUtil, RewardCentral rewardCentral, ExecutionMode executionMode) {
+		this(gpsUtil, rewardCentral, executionMode, executionMode.newBoundedExecutor("reward-lookup",
+				REWARD_LOOKUP_PARALLELISM, REWARD_LOOKUP_QUEUE_CAPACITY, REWARD_LOOKUP_REJECTION_POLICY));
+	}
+
+	public RewardsService(GpsUtil gpsUtil, RewardCentral rewardCentral, ExecutionMode executionMode,
+			ExecutorService rewardLookupExecutor) {
+		this.attractionCatalog = AttractionCatalog.load(gpsUtil, ATTRACTION_CATALOG_REFRESH_MINUTES, TimeUnit.MINUTES);
 		this.rewardsCentral = rewardCentral;
+		this.executionMode = executionMode;
+		this.backendGateway = new BackendGateway(TourGuideConfiguration::newBackendLimiter);
+		this.rewardLookupExecutor = rewardLookupExecutor;
+		this.executorMeters = TourGuideMetrics.monitor(rewardLookupExecutor, "reward-lookup");
+	}
+
+	public AttractionCatalog getAttractionCatalog() {
+		return attractionCatalog;
+	}
+
+	public ExecutionMode getExecutionMode() {
+		return executionMode;
+	}
+
+	public BackendGateway getBackendGateway() {
+		return backendGateway;
+	}
+
+	public ExecutorService getRewardLookupExecutor() {
+		return rewardLookupExecutor;
+	}
+
+	public RewardPointsCache getRewardPointsCache() {
+		return rewardPointsCache;
 	}
 
 	public void setProximityBuffer(int proximityBuffer) {
@@ -37,58 +102,179 @@ public class RewardsService {
 		proximityBuffer = defaultProximityBuffer;
 	}
 
+	/**
+	 * Paces the RewardCentral lookups of the user with the token bucket, until unthrottleLookups.
+	 * The same bucket can be shared by many users.
+	 */
+	public void throttleLookups(User user, TokenBucket throttle) {
+		lookupThrottles.put(user, throttle);
+	}
+
+	public void unthrottleLookups(User user) {
+		lookupThrottles.remove(user);
+	}
+
+	/**
+	 * Adds the rewards for the attraction fences entered by the locations visited since the last evaluation.
+	 * All the history is evaluated again when the attractions or the proximity buffer have changed.
+	 */
 	public void calculateRewards(User user) {
-		List<VisitedLocation> userLocations = user.getVisitedLocations();
-		List<Attraction> attractions = gpsUtil.getAttractions();
+		calculateRewards(List.of(user));
+	}
 
-		List<Callable<UserReward>> tasks = new ArrayList<>();
+	/**
+	 * Same as calculateRewards(User) for each user, with the RewardCentral lookups of all the users
+	 * ordered by attraction. Other evaluations of the same users may run at the same time, like the ones of
+	 * the location pipeline: a user keeps the cursor of the evaluation that got the furthest.
+	 * Users whose lookups fail or are dropped keep their cursor and are evaluated again next time. When the
+	 * reward lookup executor refuses the lookups (ABORT policy), the RejectedExecutionException is thrown
+	 * and none of the users is updated.
+	 */
+	public void calculateRewards(Collection<User> users) {
+		long start = System.nanoTime();
+		try {
+			evaluateNewLocations(users);
+		} finally {
+			long elapsed = System.nanoTime() - start;
+			calculateRewardsBatchTimer.record(elapsed, TimeUnit.NANOSECONDS);
+			for (int i = 0; i < users.size(); i++) {
+				calculateRewardsTimer.record(elapsed, TimeUnit.NANOSECONDS);
+			}
+		}
+	}
 
-		for (Attraction attraction : attractions) {
-			for (VisitedLocation visitedLocation : userLocations) {
-				if (nearAttraction(visitedLocation, attraction)) {
-					tasks.add(() ->  new UserReward(visitedLocation, attraction, getRewardPoints(attraction, user)));
-					break; // no need to loop through the rest of locations if the user was found to be near already
-				}
+	/**
+	 * True when every location of the user has been evaluated with the current attractions and proximity buffer
+	 */
+	public boolean isUpToDate(User user) {
+		RewardEvaluationCursor cursor = user.getRewardEvaluationCursor();
+		return cursor.isValidFor(attractionCatalog.getVersion(), proximityBuffer)
+				&& cursor.getEvaluatedLocations() == user.getLocationHistory().getAppendedCount();
+	}
+
+	private void evaluateNewLocations(Collection<User> users) {
+		AttractionSnapshot attractions = attractionCatalog.getSnapshot();
+		int proximity = proximityBuffer;
+		GeofenceIndex geofences = attractions.getGeofences(proximity);
+
+		Map<Attraction, List<PendingReward>> pendingRewards = new LinkedHashMap<>();
+		Map<User, RewardEvaluationCursor> startCursors = new HashMap<>();
+		Map<User, RewardEvaluationCursor> cursors = new HashMap<>();
+		for (User user : users) {
+			RewardEvaluationCursor startCursor = user.getRewardEvaluationCursor();
+			startCursors.put(user, startCursor);
+			cursors.put(user, findEnteredFences(user, startCursor, attractions.getVersion(), proximity, geofences, pendingRewards));
+		}
+
+		// one task per reward so no lookup waits behind another, submitted attraction by attraction
+		List<PendingReward> lookups = new ArrayList<>();
+		List<Callable<UserReward>> tasks = new ArrayList<>();
+		for (List<PendingReward> attractionRewards : pendingRewards.values()) {
+			for (PendingReward pending : attractionRewards) {
+				lookups.add(pending);
+				tasks.add(() -> lookUpReward(pending));
 			}
 		}
 
-		ExecutorService executorService = Executors.newCachedThreadPool();
+		Exception failure = null;
 		try {
-			List<Future<UserReward>> rewardFutures = executorService.invokeAll(tasks);
-			for (Future<UserReward> future : rewardFutures) {
-				user.addUserReward(future.get()); // this setter filters out duplicated rewards
+			// a lookup refused by the executor fails the whole batch: no reward and no cursor is saved
+			List<Future<UserReward>> rewardFutures = rewardLookupExecutor.invokeAll(tasks);
+			for (int i = 0; i < rewardFutures.size(); i++) {
+				PendingReward pending = lookups.get(i);
+				try {
+					pending.user.addUserReward(rewardFutures.get(i).get()); // this setter filters out duplicated rewards
+				} catch (ExecutionException | CancellationException e) {
+					// this user keeps its cursor, its locations are evaluated again next time
+					cursors.remove(pending.user);
+					failure = e;
+				}
 			}
-		} catch (InterruptedException | ExecutionException e) {
+		} catch (InterruptedException e) {
 			throw new RuntimeException(e);
-		} finally {
-			executorService.shutdown();
+		}
+		cursors.forEach((user, cursor) -> user.advanceRewardEvaluationCursor(startCursors.get(user), cursor));
+		if (failure != null) {
+			throw new RuntimeException(failure);
+		}
+	}
+
+	/**
+	 * Adds to pendingRewards the fences entered by the new locations of the user, with the first location of each entry
+	 * @return the cursor to save once the rewards are added
+	 */
+	private RewardEvaluationCursor findEnteredFences(User user, RewardEvaluationCursor cursor, long attractionsVersion,
+			int proximity, GeofenceIndex geofences, Map<Attraction, List<PendingReward>> pendingRewards) {
+		LocationHistory history = user.getLocationHistory();
+		long evaluatedLocations = history.getAppendedCount();
+
+		long firstNewLocation = 0;
+		Set<UUID> insideFences = Set.of();
+		if (cursor.isValidFor(attractionsVersion, proximity)) {
+			firstNewLocation = cursor.getEvaluatedLocations();
+			insideFences = cursor.getInsideFences();
 		}
 
+		// rewards are only looked for when entering a fence
+		Set<Attraction> enteredFences = new HashSet<>();
+		for (VisitedLocation visitedLocation : history.snapshot(firstNewLocation, evaluatedLocations)) {
+			List<Attraction> fences = geofences.fencesContaining(visitedLocation.location);
+			if (fences.isEmpty()) {
+				insideFences = Set.of();
+				continue;
+			}
+			Set<UUID> inside = new HashSet<>();
+			for (Attraction attraction : fences) {
+				inside.add(attraction.attractionId);
+				if (!insideFences.contains(attraction.attractionId) && !user.hasRewardFor(attraction)
+						&& enteredFences.add(attraction)) {
+					pendingRewards.computeIfAbsent(attraction, a -> new ArrayList<>())
+							.add(new PendingReward(user, attraction, visitedLocation));
+				}
+			}
+			insideFences = inside;
+		}
+		return new RewardEvaluationCursor(evaluatedLocations, attractionsVersion, proximity, insideFences);
 	}
 
-	public boolean isWithinAttractionProximity(Attraction attraction, Location location) {
-		return !(getDistance(attraction, location) > ATTRACTION_PROXIMITY_RANGE);
+	private UserReward lookUpReward(PendingReward pending) throws InterruptedException {
+		TokenBucket throttle = lookupThrottles.get(pending.user);
+		if (throttle != null) throttle.acquire();
+		return new UserReward(pending.visitedLocation, pending.attraction, getRewardPoints(pending.attraction, pending.user));
 	}
 
-	private boolean nearAttraction(VisitedLocation visitedLocation, Attraction attraction) {
-		return !(getDistance(attraction, visitedLocation.location) > proximityBuffer);
+	@PreDestroy
+	public void shutdown() {
+		attractionCatalog.stopRefreshing();
+		rewardLookupExecutor.shutdown();
+		TourGuideMetrics.remove(executorMeters);
+		backendGateway.unregisterMeters();
+	}
+
+	public boolean isWithinAttractionProximity(Attraction attraction, Location location) {
+		return !(getDistance(attraction, location) > ATTRACTION_PROXIMITY_RANGE);
 	}
 
 	public Integer getRewardPoints(Attraction attraction, User user) {
-		return rewardsCentral.getAttractionRewardPoints(attraction.attractionId, user.getUserId());
+		return rewardPointsCache.get(attraction.attractionId, user.getUserId(),
+				() -> backendGateway.call(Backend.REWARD_CENTRAL,
+						() -> rewardsCentral.getAttractionRewardPoints(attraction.attractionId, user.getUserId())));
 	}
 
 	public double getDistance(Location loc1, Location loc2) {
-        double lat1 = Math.toRadians(loc1.latitude);
-        double lon1 = Math.toRadians(loc1.longitude);
-        double lat2 = Math.toRadians(loc2.latitude);
-        double lon2 = Math.toRadians(loc2.longitude);
+		return GeoMath.distanceInMiles(loc1, loc2);
+	}
 
-        double angle = Math.acos(Math.sin(lat1) * Math.sin(lat2)
-                               + Math.cos(lat1) * Math.cos(lat2) * Math.cos(lon1 - lon2));
+	private static final class PendingReward {
+		final User user;
+		final Attraction attraction;
+		final VisitedLocation visitedLocation;
 
-        double nauticalMiles = 60 * Math.toDegrees(angle);
-		return STATUTE_MILES_PER_NAUTICAL_MILE * nauticalMiles;
+		PendingReward(User user, Attraction attraction, VisitedLocation visitedLocation) {
+			this.user = user;
+			this.attraction = attraction;
+			this.visitedLocation = visitedLocation;
+		}
 	}
 
 }
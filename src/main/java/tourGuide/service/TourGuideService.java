@@ -1,24 +1,45 @@
 package tourGuide.service;
 
-import java.time.LocalDateTime;
-import java.time.ZoneOffset;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import javax.money.Monetary;
+
+import jakarta.annotation.PreDestroy;
+
+import io.micrometer.core.instrument.Meter;
 
 import org.javamoney.moneta.Money;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import gpsUtil.GpsUtil;
-import gpsUtil.location.Attraction;
 import gpsUtil.location.Location;
 import gpsUtil.location.VisitedLocation;
+import tourGuide.attraction.AttractionDistance;
+import tourGuide.cache.TripDealsCache;
+import tourGuide.cache.TripDealsFingerprint;
+import tourGuide.concurrent.Backend;
+import tourGuide.concurrent.BackendGateway;
+import tourGuide.concurrent.BoundedExecutor;
+import tourGuide.concurrent.ExecutionMode;
+import tourGuide.concurrent.SingleFlight;
+import tourGuide.concurrent.UserWorkQueue;
+import tourGuide.dto.CurrentLocationsPage;
 import tourGuide.dto.NearbyAttractionDTO;
 import tourGuide.helper.InternalTestHelper;
+import tourGuide.helper.InternalUserSnapshot;
+import tourGuide.metrics.TourGuideMetrics;
 import tourGuide.model.UserPreferences;
+import tourGuide.persistence.LocationJournal;
+import tourGuide.pipeline.LocationEventPipeline;
+import tourGuide.registry.UserRegistry;
 import tourGuide.tracker.Tracker;
 import tourGuide.model.User;
 import tourGuide.model.UserReward;
@@ -26,6 +47,18 @@ import tripPricer.Provider;
 import tripPricer.TripPricer;
 
 import static tourGuide.TourGuideConfiguration.IS_TEST_MODE_ENABLED;
+import static tourGuide.TourGuideConfiguration.LOCATION_FRESHNESS_TTL_SECONDS;
+import static tourGuide.TourGuideConfiguration.LOCATION_PIPELINE_BATCH_SIZE;
+import static tourGuide.TourGuideConfiguration.LOCATION_PIPELINE_RING_CAPACITY;
+import static tourGuide.TourGuideConfiguration.LOCATION_PIPELINE_WORKERS;
+import static tourGuide.TourGuideConfiguration.TRACKING_EXECUTOR_QUEUE_CAPACITY;
+import static tourGuide.TourGuideConfiguration.TRACKING_EXECUTOR_REJECTION_POLICY;
+import static tourGuide.TourGuideConfiguration.TRACKING_PLATFORM_THREADS;
+import static tourGuide.TourGuideConfiguration.TRACKING_QUEUE_CAPACITY;
+import static tourGuide.TourGuideConfiguration.TRACKING_QUEUE_POLICY;
+import static tourGuide.TourGuideConfiguration.TRACKING_VIRTUAL_THREADS;
+import static tourGuide.TourGuideConfiguration.TRIP_DEALS_CACHE_TTL_MINUTES;
+import static tourGuide.TourGuideConfiguration.USER_REGISTRY_SHARDS;
 
 @Service
 public class TourGuideService {
@@ -33,13 +66,34 @@ public class TourGuideService {
     private final GpsUtil gpsUtil;
     private final RewardsService rewardsService;
     private final TripPricer tripPricer = new TripPricer();
+    private final TripDealsCache tripDealsCache = new TripDealsCache(TRIP_DEALS_CACHE_TTL_MINUTES, TimeUnit.MINUTES);
+    private final BackendGateway backendGateway;
+    private final ExecutionMode executionMode;
+    private final LocationJournal locationJournal;
+    // Database connection will be used for external users, but for testing purposes internal users are provided and stored in memory
+    private final UserRegistry userRegistry = new UserRegistry(USER_REGISTRY_SHARDS);
     private final Tracker tracker;
-    public final ExecutorService executorService;
+    // runs the Tracker requests and every asynchronous request, its queue is bounded in both execution modes
+    public final BoundedExecutor executorService;
+    // concurrent lookups of a user share one GPS call
+    private final SingleFlight<UUID, VisitedLocation> locationLookups = new SingleFlight<>();
+    // new locations are evaluated for rewards by batches, never twice at once for a user
+    private final LocationEventPipeline locationEvents;
+    private final UserWorkQueue trackingQueue;
+    private final List<Meter> executorMeters;
 
     public TourGuideService(GpsUtil gpsUtil, RewardsService rewardsService) {
+        this(gpsUtil, rewardsService, LocationJournal.DISABLED);
+    }
+
+    @Autowired
+    public TourGuideService(GpsUtil gpsUtil, RewardsService rewardsService, LocationJournal locationJournal) {
         this.gpsUtil = gpsUtil;
+        this.locationJournal = locationJournal;
         Locale.setDefault(Locale.US); // needed for GpsUtil to function
         this.rewardsService = rewardsService;
+        this.backendGateway = rewardsService.getBackendGateway();
+        this.executionMode = rewardsService.getExecutionMode();
 
         if (IS_TEST_MODE_ENABLED) {
             logger.info("TestMode enabled");
@@ -47,62 +101,151 @@ public class TourGuideService {
             initializeInternalUsers();
             logger.debug("Finished initializing users");
         }
+        restoreLocationHistories();
+        executorService = executionMode.newBoundedExecutor("tracking",
+                executionMode == ExecutionMode.VIRTUAL ? TRACKING_VIRTUAL_THREADS : TRACKING_PLATFORM_THREADS,
+                TRACKING_EXECUTOR_QUEUE_CAPACITY, TRACKING_EXECUTOR_REJECTION_POLICY);
+        executorMeters = TourGuideMetrics.monitor(executorService, "tracking");
+        locationEvents = LocationEventPipeline.start("location-events", LOCATION_PIPELINE_WORKERS,
+                LOCATION_PIPELINE_RING_CAPACITY, LOCATION_PIPELINE_BATCH_SIZE, rewardsService::calculateRewards);
+        trackingQueue = new UserWorkQueue("tracking", executorService, TRACKING_QUEUE_CAPACITY, TRACKING_QUEUE_POLICY);
         tracker = new Tracker(this);
-        executorService = Executors.newFixedThreadPool(600);
-        addShutDownHook();
+    }
+
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    public Tracker getTracker() {
+        return tracker;
+    }
+
+    public TripDealsCache getTripDealsCache() {
+        return tripDealsCache;
+    }
+
+    /**
+     * Bounded queue the Tracker goes through to request the locations of the users
+     */
+    public UserWorkQueue getTrackingQueue() {
+        return trackingQueue;
+    }
+
+    /**
+     * Bounded executor behind the tracking queue, which also runs the asynchronous requests of the users
+     */
+    public BoundedExecutor getTrackingExecutor() {
+        return executorService;
+    }
+
+    public LocationEventPipeline getLocationEvents() {
+        return locationEvents;
+    }
+
+    public SingleFlight<UUID, VisitedLocation> getLocationLookups() {
+        return locationLookups;
     }
 
     public List<UserReward> getUserRewards(User user) {
         return user.getUserRewards();
     }
 
+    /**
+     * Stored location of the user, refreshed in the background when older than the freshness TTL
+     * or when it was never given by GpsUtil. Only a user without any stored location waits for GpsUtil.
+     */
     public VisitedLocation getUserLocation(User user) {
-        return user.getLastVisitedLocation()
-                .orElse(trackUserLocation(user));
+        Optional<VisitedLocation> lastVisitedLocation = user.getLastVisitedLocation();
+        if (lastVisitedLocation.isEmpty()) {
+            return trackUserLocation(user);
+        }
+        refreshIfStale(user);
+        return lastVisitedLocation.get();
+    }
+
+    /**
+     * Completes right away with the stored location, or when GpsUtil has located the user
+     */
+    public CompletableFuture<VisitedLocation> getUserLocationAsync(User user) {
+        Optional<VisitedLocation> lastVisitedLocation = user.getLastVisitedLocation();
+        if (lastVisitedLocation.isEmpty()) {
+            return trackUserLocationAsync(user);
+        }
+        refreshIfStale(user);
+        return CompletableFuture.completedFuture(lastVisitedLocation.get());
+    }
+
+    private void refreshIfStale(User user) {
+        Date latestLocationTimestamp = user.getLatestLocationTimestamp();
+        long age = latestLocationTimestamp == null ? Long.MAX_VALUE : System.currentTimeMillis() - latestLocationTimestamp.getTime();
+        if (age > TimeUnit.SECONDS.toMillis(LOCATION_FRESHNESS_TTL_SECONDS)) {
+            // merges into the waiting Tracker request of the user if any, and is skipped when the queue is full
+            trackingQueue.offer(user.getUserId(), () -> trackUserLocation(user));
+        }
     }
 
     public User getUser(String userName) {
-        return internalUserMap.get(userName);
+        return userRegistry.findByName(userName).orElse(null);
     }
 
+    /**
+     * Copy of the users, prefer getUserRegistry() to go through them without copying
+     */
     public List<User> getAllUsers() {
-        return new ArrayList<>(internalUserMap.values());
+        return userRegistry.stream().collect(Collectors.toList());
+    }
+
+    public UserRegistry getUserRegistry() {
+        return userRegistry;
     }
 
     public void addUser(User user) {
-        if (!internalUserMap.containsKey(user.getUserName())) {
-            internalUserMap.put(user.getUserName(), user);
-        }
+        userRegistry.register(user);
     }
 
+    /**
+     * Deals from TripPricer within the price range of the user.
+     * They are cached until the preferences or the reward points total of the user change.
+     */
     public List<Provider> getTripDeals(User user) {
-        int rewardPointsTotal = 0;
-        for (UserReward reward : user.getUserRewards()) {
-            rewardPointsTotal += reward.getRewardPoints();
-        }
+        int rewardPointsTotal = user.getRewardPointsTotal();
         UserPreferences preferences = user.getUserPreferences();
         int adults = preferences.getNumberOfAdults();
         int children = preferences.getNumberOfChildren();
         int nightsStay = preferences.getTripDuration();
         Money minPrice = preferences.getLowerPricePoint();
         Money maxPrice = preferences.getHighPricePoint();
-        List<Provider> providers = tripPricer.getPrice(tripPricerApiKey, user.getUserId(),
-                        adults, children, nightsStay, rewardPointsTotal)
+        TripDealsFingerprint fingerprint =
+                new TripDealsFingerprint(adults, children, nightsStay, rewardPointsTotal, minPrice, maxPrice);
+        List<Provider> providers = tripDealsCache.get(user.getUserId(), fingerprint, () ->
+                backendGateway.call(Backend.TRIP_PRICER, () -> tripPricer.getPrice(
+                        tripPricerApiKey, user.getUserId(), adults, children, nightsStay, rewardPointsTotal))
                 .stream().filter(provider -> {
                     Money price = Money.of(provider.price, "USD");
                     return (price.isLessThanOrEqualTo(maxPrice) && price.isGreaterThanOrEqualTo(minPrice));
                 })
-                .collect(Collectors.toList());
+                .collect(Collectors.toList()));
         user.setTripDeals(providers);
         return providers;
     }
 
+    public CompletableFuture<List<Provider>> getTripDealsAsync(User user) {
+        return CompletableFuture.supplyAsync(() -> getTripDeals(user), executorService);
+    }
+
     public VisitedLocation trackUserLocation(User user) {
-        VisitedLocation visitedLocation = gpsUtil.getUserLocation(user.getUserId());
-        executorService.submit(() -> {
-            user.addToVisitedLocations(visitedLocation);
-            rewardsService.calculateRewards(user);
-        });
+        return locationLookups.call(user.getUserId(), () -> locateUser(user));
+    }
+
+    public CompletableFuture<VisitedLocation> trackUserLocationAsync(User user) {
+        return locationLookups.callAsync(user.getUserId(), () -> locateUser(user), executorService);
+    }
+
+    private VisitedLocation locateUser(User user) {
+        VisitedLocation visitedLocation = backendGateway.call(Backend.GPS_UTIL, () -> gpsUtil.getUserLocation(user.getUserId()));
+        user.addTrackedLocation(visitedLocation);
+        locationJournal.append(visitedLocation);
+        locationEvents.publish(user);
         return visitedLocation;
     }
 
@@ -115,50 +258,70 @@ public class TourGuideService {
     //   - The reward points for visiting each Attraction.
     //  Note: Attraction reward points can be gathered from RewardsCentral
     public List<NearbyAttractionDTO> getNearByAttractions(String userName) {
-        User user = getUser(userName);
-        Location userLocation = getUserLocation(user).location;
-        Map<Attraction, Double> distances = new HashMap<>();
-        PriorityQueue<Attraction> attractions = new PriorityQueue<>(Comparator.comparingDouble(distances::get));
-
-        for (Attraction attraction : gpsUtil.getAttractions()) {
-            distances.put(attraction, rewardsService.getDistance(userLocation, attraction));
-            attractions.add(attraction);
-        }
+        return getNearByAttractionsAsync(userName).join();
+    }
 
+    public CompletableFuture<List<NearbyAttractionDTO>> getNearByAttractionsAsync(String userName) {
+        User user = getUser(userName);
         int RESPONSE_SIZE = 5;
-        List<Callable<NearbyAttractionDTO>> tasks = new ArrayList<>();
-        for (int i = 0; i < RESPONSE_SIZE; i++) {
-            Attraction attraction = attractions.poll();
-            if (attraction != null) {
-                tasks.add(()->{
-                    int rewardPoints = rewardsService.getRewardPoints(attraction, user);
+        return getUserLocationAsync(user).thenCompose(visitedLocation -> {
+            Location userLocation = visitedLocation.location;
+            List<CompletableFuture<NearbyAttractionDTO>> futures = new ArrayList<>();
+            for (AttractionDistance match : rewardsService.getAttractionCatalog().getSnapshot().getIndex()
+                    .nearestK(userLocation, RESPONSE_SIZE)) {
+                futures.add(CompletableFuture.supplyAsync(() -> {
+                    int rewardPoints = rewardsService.getRewardPoints(match.attraction, user);
                     return new NearbyAttractionDTO(
-                            attraction, userLocation, distances.get(attraction), rewardPoints);
-                });
-            }
-        }
-
-        try {
-            List<NearbyAttractionDTO> nearbyAttractions = new ArrayList<>();
-            for (Future<NearbyAttractionDTO> future : executorService.invokeAll(tasks)) {
-                nearbyAttractions.add(future.get());
+                            match.attraction, userLocation, match.distanceInMiles, rewardPoints);
+                }, executorService));
             }
-            return nearbyAttractions;
-        } catch (InterruptedException | ExecutionException e) {
-            throw new RuntimeException(e);
-        }
+            return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                    .thenApply(done -> futures.stream().map(CompletableFuture::join).collect(Collectors.toList()));
+        });
     }
 
     public Map<String, Location> getAllCurrentLocations() {
-        Map<String, Location> locations = new ConcurrentHashMap<>();
-        for (User user : getAllUsers()) {
-            String uuid = user.getUserId().toString();
-            Location location = getUserLocation(user).location;
-            locations.put(uuid, location);
-        }
+        Map<String, Location> locations = new HashMap<>();
+        getCurrentLocations().forEach(visitedLocation ->
+                locations.put(visitedLocation.userId.toString(), visitedLocation.location));
         return locations;
     }
 
+    /**
+     * Last stored location of every user, in user id order.
+     * Never calls GpsUtil: users without any stored location are left out.
+     */
+    public Stream<VisitedLocation> getCurrentLocations() {
+        return userRegistry.usersAfter(null).stream()
+                .map(User::getLastVisitedLocation)
+                .flatMap(Optional::stream);
+    }
+
+    /**
+     * Last stored location of the limit users following afterUserId in user id order.
+     * Pages stay consistent while users register: a new user shows up in a later page or not at all, never twice.
+     * @param afterUserId cursor returned with the previous page, null for the first page
+     */
+    public CurrentLocationsPage getCurrentLocations(UUID afterUserId, int limit) {
+        List<VisitedLocation> locations = new ArrayList<>(Math.min(limit, 1024));
+        int usersWithoutLocation = 0;
+        UUID lastUserId = null;
+        Iterator<User> users = userRegistry.usersAfter(afterUserId).iterator();
+        int scanned = 0;
+        while (scanned < limit && users.hasNext()) {
+            User user = users.next();
+            scanned++;
+            lastUserId = user.getUserId();
+            Optional<VisitedLocation> location = user.getLastVisitedLocation();
+            if (location.isPresent()) {
+                locations.add(location.get());
+            } else {
+                usersWithoutLocation++;
+            }
+        }
+        return new CurrentLocationsPage(locations, usersWithoutLocation, users.hasNext() ? lastUserId : null);
+    }
+
     public void setUserPreferences(User user, int adults, int children, int nightsStay, double minPrice, double maxPrice) {
         UserPreferences preferences = user.getUserPreferences();
         preferences.setNumberOfAdults(adults);
@@ -167,6 +330,7 @@ public class TourGuideService {
         preferences.setLowerPricePoint(Money.of(minPrice, "USD"));
         preferences.setHighPricePoint(Money.of(maxPrice, "USD"));
         user.setUserPreferences(preferences);
+        tripDealsCache.invalidate(user.getUserId());
     }
 
 
@@ -174,6 +338,8 @@ public class TourGuideService {
      * When shutting down, ensure that all calculations are complete
      *****************************************************************/
 
+    // Called by Spring before the beans this service depends on, like the location journal, are destroyed
+    @PreDestroy
     public void stopTrackingUsersAndCompleteTasks() {
         tracker.stopTracking();
         logger.debug("Tracker stopped. Completing tasks . . .");
@@ -187,57 +353,110 @@ public class TourGuideService {
             }
             logger.debug("Completing tasks . . . (elapsed {} minutes)", ++minutes);
         }
+        locationEvents.drainAndStop();
+        locationJournal.flush();
+        trackingQueue.unregisterMeters();
+        TourGuideMetrics.remove(executorMeters);
     }
 
-    private void addShutDownHook() {
-        Runtime.getRuntime().addShutdownHook(
-                new Thread(this::stopTrackingUsersAndCompleteTasks, "shutdown hook"));
+    /**
+     * Adds the locations kept in the journal to the histories of the known users.
+     * The journal only has the user ids: internal users are found again only when their ids are the same
+     * on every start, see tourguide.internal-users.seed and tourguide.internal-users.snapshot.
+     */
+    private void restoreLocationHistories() {
+        Map<UUID, List<VisitedLocation>> journal = locationJournal.load();
+        if (journal.isEmpty()) return;
+        int restoredUsers = 0;
+        for (Map.Entry<UUID, List<VisitedLocation>> entry : journal.entrySet()) {
+            Optional<User> user = userRegistry.findById(entry.getKey());
+            if (user.isEmpty()) continue;
+            entry.getValue().forEach(user.get()::addTrackedLocation);
+            restoredUsers++;
+        }
+        logger.debug("Restored the location history of {} users from the journal", restoredUsers);
+        if (restoredUsers < journal.size()) {
+            logger.warn("The journal has the locations of {} unknown users, are the internal users generated from a fixed seed?",
+                    journal.size() - restoredUsers);
+        }
     }
 
     /**********************************************************************************
      * Methods Below: For Internal Testing
      **********************************************************************************/
     private static final String tripPricerApiKey = "test-server-api-key";
-    // Database connection will be used for external users, but for testing purposes internal users are provided and stored in memory
-    private final Map<String, User> internalUserMap = new HashMap<>();
 
     private void initializeInternalUsers() {
-        IntStream.range(0, InternalTestHelper.getInternalUserNumber()).forEach(i -> {
+        int userNumber = InternalTestHelper.getInternalUserNumber();
+        Path snapshot = InternalTestHelper.getInternalUserSnapshot();
+        List<User> users;
+        if (snapshot != null && InternalUserSnapshot.countUsers(snapshot) == userNumber) {
+            users = InternalUserSnapshot.read(snapshot);
+            logger.debug("Loaded " + userNumber + " internal test users from " + snapshot);
+        } else {
+            users = generateInternalUsers(userNumber);
+            if (snapshot != null) {
+                InternalUserSnapshot.write(snapshot, users);
+            }
+        }
+        users.forEach(userRegistry::register);
+        logger.debug("Created " + userNumber + " internal test users.");
+    }
+
+    /**
+     * Users are generated in parallel, each from its own random generator derived from the seed and
+     * its index, so a given seed always gives the same users whatever the threads doing the work
+     */
+    private List<User> generateInternalUsers(int userNumber) {
+        Long seed = InternalTestHelper.getInternalUserSeed();
+        long baseSeed = seed != null ? seed : new SplittableRandom().nextLong();
+        long now = System.currentTimeMillis();
+        // each new User builds UserPreferences, which looks up USD. The first lookup loads the currency providers
+        // through the context class loader, which the common pool threads of the packaged app do not have.
+        Monetary.getCurrency("USD");
+        User[] users = new User[userNumber];
+        IntStream.range(0, userNumber).parallel().forEach(i -> {
+            SplittableRandom random = new SplittableRandom(baseSeed + i * 0x9E3779B97F4A7C15L);
             String userName = "internalUser" + i;
             String phone = "000";
             String email = userName + "@tourGuide.com";
-            User user = new User(UUID.randomUUID(), userName, phone, email);
-            generateUserLocationHistory(user);
-
-            internalUserMap.put(userName, user);
+            User user = new User(randomUUID(random), userName, phone, email);
+            generateUserLocationHistory(user, random, now);
+            users[i] = user;
         });
-        logger.debug("Created " + InternalTestHelper.getInternalUserNumber() + " internal test users.");
+        return Arrays.asList(users);
     }
 
-    private void generateUserLocationHistory(User user) {
+    private void generateUserLocationHistory(User user, SplittableRandom random, long now) {
         for (int i = 0; i<4; i++) {
             user.addToVisitedLocations(new VisitedLocation(
                     user.getUserId(),
-                    new Location(generateRandomLatitude(), generateRandomLongitude()),
-                    getRandomTime()));
+                    new Location(generateRandomLatitude(random), generateRandomLongitude(random)),
+                    getRandomTime(random, now)));
         }
     }
 
-    private double generateRandomLongitude() {
+    private static UUID randomUUID(SplittableRandom random) {
+        // same version and variant bits as UUID.randomUUID()
+        long mostSignificantBits = (random.nextLong() & ~0xF000L) | 0x4000L;
+        long leastSignificantBits = (random.nextLong() & ~(0xC0L << 56)) | (0x80L << 56);
+        return new UUID(mostSignificantBits, leastSignificantBits);
+    }
+
+    private double generateRandomLongitude(SplittableRandom random) {
         double leftLimit = -180;
         double rightLimit = 180;
-        return leftLimit + new Random().nextDouble() * (rightLimit - leftLimit);
+        return leftLimit + random.nextDouble() * (rightLimit - leftLimit);
     }
 
-    private double generateRandomLatitude() {
+    private double generateRandomLatitude(SplittableRandom random) {
         double leftLimit = -85.05112878;
         double rightLimit = 85.05112878;
-        return leftLimit + new Random().nextDouble() * (rightLimit - leftLimit);
+        return leftLimit + random.nextDouble() * (rightLimit - leftLimit);
     }
 
-    private Date getRandomTime() {
-        LocalDateTime localDateTime = LocalDateTime.now().minusDays(new Random().nextInt(30));
-        return Date.from(localDateTime.toInstant(ZoneOffset.UTC));
+    private Date getRandomTime(SplittableRandom random, long now) {
+        return new Date(now - TimeUnit.DAYS.toMillis(random.nextInt(30)));
     }
 
 }
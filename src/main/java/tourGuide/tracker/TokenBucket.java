@@ -0,0 +1,37 @@
+package tourGuide.tracker;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Paces callers to a steady rate. Up to capacity tokens can be saved while idle, allowing a short burst.
+ */
+public class TokenBucket {
+
+	private final double tokensPerNano;
+	private final double capacity;
+	private double tokens = 1;
+	private long lastRefill = System.nanoTime();
+
+	public TokenBucket(double tokensPerSecond, double capacity) {
+		this.tokensPerNano = tokensPerSecond / TimeUnit.SECONDS.toNanos(1);
+		this.capacity = Math.max(1, capacity);
+	}
+
+	/**
+	 * Takes a token, waiting for it if the bucket is empty
+	 */
+	public void acquire() throws InterruptedException {
+		long waitNanos;
+		synchronized (this) {
+			long now = System.nanoTime();
+			tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+			lastRefill = now;
+			tokens -= 1; // a negative balance reserves the next tokens
+			waitNanos = tokens >= 0 ? 0 : (long) (-tokens / tokensPerNano);
+		}
+		if (waitNanos > 0) {
+			TimeUnit.NANOSECONDS.sleep(waitNanos);
+		}
+	}
+
+}
@@ -1,61 +1,58 @@
 package tourGuide.tracker;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
-import org.apache.commons.lang3.time.StopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import tourGuide.service.TourGuideService;
-import tourGuide.model.User;
 
-public class Tracker extends Thread {
+import static tourGuide.TourGuideConfiguration.TRACKER_SHARDS;
+
+public class Tracker {
 	private Logger logger = LoggerFactory.getLogger(Tracker.class);
 	private static final long trackingPollingInterval = TimeUnit.MINUTES.toSeconds(5);
-	private final ExecutorService executorService = Executors.newSingleThreadExecutor();
-	private final TourGuideService tourGuideService;
-	private boolean stop = false;
+	private final ExecutorService executorService;
+	private final List<TrackerShard> shards = new ArrayList<>();
 
 	public Tracker(TourGuideService tourGuideService) {
-		this.tourGuideService = tourGuideService;
-		
-		executorService.submit(this);
+		this(tourGuideService, TRACKER_SHARDS, trackingPollingInterval, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Starts one worker per shard, each of them tracking its users evenly over the polling interval
+	 */
+	public Tracker(TourGuideService tourGuideService, int shardCount, long pollingInterval, TimeUnit timeUnit) {
+		this.executorService = tourGuideService.getExecutionMode().newExecutor("tracker", shardCount);
+		for (int i = 0; i < shardCount; i++) {
+			TrackerShard shard = new TrackerShard(i, shardCount, pollingInterval, timeUnit, tourGuideService);
+			shards.add(shard);
+			executorService.submit(shard);
+		}
+		logger.debug("Tracker started with {} shards", shardCount);
 	}
 	
 	/**
-	 * Assures to shut down the Tracker thread
+	 * Assures to shut down the Tracker threads
 	 */
 	public void stopTracking() {
-		stop = true;
+		shards.forEach(TrackerShard::stop);
 		executorService.shutdownNow();
 	}
-	
-	@Override
-	public void run() {
-		StopWatch stopWatch = new StopWatch();
-		while(true) {
-			if(Thread.currentThread().isInterrupted() || stop) {
-				logger.debug("Tracker stopping");
-				break;
-			}
-			
-			List<User> users = tourGuideService.getAllUsers();
-			logger.debug("Begin Tracker. Tracking " + users.size() + " users.");
-			stopWatch.start();
-			users.forEach(u -> tourGuideService.trackUserLocation(u));
-			stopWatch.stop();
-			logger.debug("Tracker Time Elapsed: " + TimeUnit.MILLISECONDS.toSeconds(stopWatch.getTime()) + " seconds."); 
-			stopWatch.reset();
-			try {
-				logger.debug("Tracker sleeping");
-				TimeUnit.SECONDS.sleep(trackingPollingInterval);
-			} catch (InterruptedException e) {
-				break;
-			}
-		}
-		
+
+	public List<TrackerShard> getShards() {
+		return Collections.unmodifiableList(shards);
 	}
+
+	/**
+	 * Largest lag of the shards on their last location request
+	 */
+	public long getLagMillis() {
+		return shards.stream().mapToLong(TrackerShard::getLagMillis).max().orElse(0);
+	}
+
 }
@@ -0,0 +1,116 @@
+package tourGuide.tracker;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.micrometer.core.instrument.Timer;
+
+import tourGuide.metrics.TourGuideMetrics;
+import tourGuide.model.User;
+import tourGuide.registry.UserRegistry;
+import tourGuide.service.TourGuideService;
+
+/**
+ * Tracks one partition of the users, spreading their location requests evenly over the polling interval
+ * instead of sending them all at once. The partition is made of the registry shards i, i + shardCount, ...
+ * so with more tracker shards than registry shards the extra ones stay idle.
+ */
+public class TrackerShard implements Runnable {
+	private final Logger logger = LoggerFactory.getLogger(TrackerShard.class);
+	private final int shardIndex;
+	private final int shardCount;
+	private final long pollingIntervalNanos;
+	private final TourGuideService tourGuideService;
+	private final Timer cycleTimer;
+	private final Timer lagTimer;
+	private volatile boolean stop = false;
+	private volatile long lagMillis = 0;
+	private volatile long maxLagMillis = 0;
+	private volatile int usersInCycle = 0;
+
+	public TrackerShard(int shardIndex, int shardCount, long pollingInterval, TimeUnit timeUnit, TourGuideService tourGuideService) {
+		this.shardIndex = shardIndex;
+		this.shardCount = shardCount;
+		this.pollingIntervalNanos = timeUnit.toNanos(pollingInterval);
+		this.tourGuideService = tourGuideService;
+		this.cycleTimer = TourGuideMetrics.timer(TourGuideMetrics.TRACKER_CYCLE, "shard", String.valueOf(shardIndex));
+		this.lagTimer = TourGuideMetrics.timer(TourGuideMetrics.TRACKER_LAG, "shard", String.valueOf(shardIndex));
+	}
+
+	public void stop() {
+		stop = true;
+	}
+
+	/**
+	 * How late the last location request of this shard was sent, compared to its slot in the interval
+	 */
+	public long getLagMillis() {
+		return lagMillis;
+	}
+
+	public long getMaxLagMillis() {
+		return maxLagMillis;
+	}
+
+	public int getUsersInCycle() {
+		return usersInCycle;
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (!stop && !Thread.currentThread().isInterrupted()) {
+				long cycleStart = System.nanoTime();
+				trackCycle(cycleStart);
+				cycleTimer.record(System.nanoTime() - cycleStart, TimeUnit.NANOSECONDS);
+				long remaining = cycleStart + pollingIntervalNanos - System.nanoTime();
+				logger.debug("Tracker shard {} sleeping", shardIndex);
+				TimeUnit.NANOSECONDS.sleep(Math.max(0, remaining));
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		logger.debug("Tracker shard {} stopping", shardIndex);
+	}
+
+	private void trackCycle(long cycleStart) throws InterruptedException {
+		UserRegistry registry = tourGuideService.getUserRegistry();
+		int userCount = 0;
+		for (int j = shardIndex; j < registry.getShardCount(); j += shardCount) {
+			userCount += registry.shard(j).size();
+		}
+		usersInCycle = userCount;
+		if (userCount == 0) return;
+		logger.debug("Tracker shard {} tracking {} users", shardIndex, userCount);
+
+		double usersPerSecond = userCount / (pollingIntervalNanos / (double) TimeUnit.SECONDS.toNanos(1));
+		TokenBucket tokenBucket = new TokenBucket(usersPerSecond, usersPerSecond);
+		long slotNanos = pollingIntervalNanos / userCount;
+		int i = 0;
+		for (int j = shardIndex; j < registry.getShardCount(); j += shardCount) {
+			// users registered during the cycle may be seen, they just share the slots of the others
+			for (User user : registry.shard(j)) {
+				if (stop) return;
+				tokenBucket.acquire();
+				recordLag(System.nanoTime() - (cycleStart + i++ * slotNanos));
+				try {
+					tourGuideService.getTrackingQueue().submit(user.getUserId(), () -> tourGuideService.trackUserLocation(user));
+				} catch (RejectedExecutionException e) {
+					return; // the service is shutting down
+				}
+			}
+		}
+	}
+
+	private void recordLag(long lagNanos) {
+		lagTimer.record(Math.max(0, lagNanos), TimeUnit.NANOSECONDS);
+		lagMillis = Math.max(0, TimeUnit.NANOSECONDS.toMillis(lagNanos));
+		if (lagMillis > maxLagMillis) {
+			maxLagMillis = lagMillis;
+		}
+	}
+
+}
@@ -0,0 +1,67 @@
+package tourGuide;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import tourGuide.concurrent.AimdConcurrencyLimiter;
+
+public class TestAimdConcurrencyLimiter {
+
+	private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+
+	@Test
+	public void limitGrowsUpToTheMaximumWhileItIsUsed() throws InterruptedException {
+		AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(2, 1, 10, 0.5, 2.0);
+
+		for (int round = 0; round < 10; round++) {
+			int limit = limiter.getLimit();
+			for (int i = 0; i < limit; i++) {
+				limiter.acquire();
+			}
+			assertEquals(limit, limiter.getInFlight());
+			for (int i = 0; i < limit; i++) {
+				limiter.release(FAST, false);
+			}
+		}
+
+		assertEquals(10, limiter.getLimit());
+		assertEquals(0, limiter.getInFlight());
+	}
+
+	@Test
+	public void limitDoesNotGrowWhileMostlyUnused() throws InterruptedException {
+		AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(8, 1, 100, 0.5, 2.0);
+
+		for (int i = 0; i < 100; i++) {
+			limiter.acquire();
+			limiter.release(FAST, false);
+		}
+
+		assertEquals(8, limiter.getLimit());
+	}
+
+	@Test
+	public void limitBacksOffOnFailuresAndSlowCalls() throws InterruptedException {
+		AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(16, 2, 100, 0.5, 2.0);
+		for (int i = 0; i < 50; i++) {
+			limiter.acquire();
+			limiter.release(FAST, false);
+		}
+
+		limiter.acquire();
+		limiter.release(FAST, true);
+		assertEquals(8, limiter.getLimit());
+
+		Thread.sleep(5); // cuts are spaced by at least the usual latency
+		for (int i = 0; i < 20; i++) {
+			limiter.acquire();
+			limiter.release(TimeUnit.MILLISECONDS.toNanos(50), false);
+		}
+		assertTrue(limiter.getLimit() < 8);
+		assertTrue(limiter.getLimit() >= 2);
+	}
+
+}
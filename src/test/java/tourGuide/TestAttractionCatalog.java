@@ -0,0 +1,51 @@
+package tourGuide;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import gpsUtil.GpsUtil;
+import gpsUtil.location.Attraction;
+import tourGuide.attraction.AttractionCatalog;
+
+public class TestAttractionCatalog {
+
+	@Test
+	public void refreshKeepsVersionWhenAttractionsDidNotChange() {
+		AttractionCatalog catalog = AttractionCatalog.load(new GpsUtil(), 0, TimeUnit.MINUTES);
+		List<Attraction> before = catalog.getAttractions();
+
+		boolean changed = catalog.refresh();
+
+		assertFalse(changed);
+		assertEquals(1, catalog.getVersion());
+		assertSame(before.get(0), catalog.getAttractions().get(0));
+	}
+
+	@Test
+	public void refreshPublishesNewVersionWhenAttractionsChanged() {
+		List<Attraction> attractions = new ArrayList<>();
+		attractions.add(new Attraction("Disneyland", "Anaheim", "CA", 33.817595D, -117.922008D));
+		GpsUtil gpsUtil = new GpsUtil() {
+			@Override
+			public List<Attraction> getAttractions() {
+				return new ArrayList<>(attractions);
+			}
+		};
+		AttractionCatalog catalog = AttractionCatalog.load(gpsUtil, 0, TimeUnit.MINUTES);
+		Attraction disneyland = catalog.getAttractions().get(0);
+
+		attractions.add(new Attraction("Jackson Hole", "Jackson Hole", "WY", 43.582767D, -110.821999D));
+		boolean changed = catalog.refresh();
+
+		assertTrue(changed);
+		assertEquals(2, catalog.getVersion());
+		assertEquals(2, catalog.getAttractions().size());
+		assertSame(disneyland, catalog.getSnapshot().getAttraction(disneyland.attractionId).get());
+	}
+
+}
@@ -0,0 +1,83 @@
+package tourGuide;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import tourGuide.attraction.AttractionDistance;
+import tourGuide.attraction.AttractionIndex;
+import tourGuide.geo.GeoMath;
+
+public class TestAttractionIndex {
+
+	private final Random random = new Random(42);
+
+	@Test
+	public void withinRadiusFindsSameAttractionsAsFullScan() {
+		List<Attraction> attractions = randomAttractions(2000);
+		AttractionIndex index = new AttractionIndex(attractions, 1.0);
+
+		for (int i = 0; i < 200; i++) {
+			Location location = randomLocation();
+			double miles = 10 + random.nextInt(2000);
+			Set<Attraction> expected = attractions.stream()
+					.filter(attraction -> !(GeoMath.distanceInMiles(location, attraction) > miles))
+					.collect(Collectors.toSet());
+
+			Set<Attraction> found = index.withinRadius(location, miles).stream()
+					.map(match -> match.attraction)
+					.collect(Collectors.toSet());
+
+			assertEquals(expected, found);
+		}
+	}
+
+	@Test
+	public void nearestKReturnsClosestAttractionsInOrder() {
+		List<Attraction> attractions = randomAttractions(2000);
+		AttractionIndex index = new AttractionIndex(attractions, 1.0);
+
+		for (int i = 0; i < 200; i++) {
+			Location location = randomLocation();
+			List<Double> expected = attractions.stream()
+					.map(attraction -> GeoMath.distanceInMiles(location, attraction))
+					.sorted()
+					.limit(5)
+					.collect(Collectors.toList());
+
+			List<Double> found = index.nearestK(location, 5).stream()
+					.map(match -> match.distanceInMiles)
+					.collect(Collectors.toList());
+
+			assertEquals(expected, found);
+		}
+	}
+
+	@Test
+	public void nearestKIsLimitedToTheNumberOfAttractions() {
+		AttractionIndex index = new AttractionIndex(randomAttractions(3), 1.0);
+
+		List<AttractionDistance> found = index.nearestK(randomLocation(), 5);
+
+		assertEquals(3, found.size());
+	}
+
+	private List<Attraction> randomAttractions(int count) {
+		List<Attraction> attractions = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			Location location = randomLocation();
+			attractions.add(new Attraction("attraction" + i, "city", "state", location.latitude, location.longitude));
+		}
+		return attractions;
+	}
+
+	private Location randomLocation() {
+		return new Location(-90 + random.nextDouble() * 180, -180 + random.nextDouble() * 360);
+	}
+
+}
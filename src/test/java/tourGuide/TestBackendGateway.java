@@ -0,0 +1,71 @@
+package tourGuide;
+
+import static org.junit.Assert.*;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import tourGuide.concurrent.Backend;
+import tourGuide.concurrent.BackendGateway;
+import tourGuide.metrics.TourGuideMetrics;
+
+public class TestBackendGateway {
+
+	@Test
+	public void callsOverTheLimitWaitForAPermit() throws InterruptedException {
+		Map<Backend, Integer> limits = new EnumMap<>(Backend.class);
+		limits.put(Backend.REWARD_CENTRAL, 2);
+		BackendGateway gateway = new BackendGateway(limits);
+		AtomicInteger inFlight = new AtomicInteger();
+		AtomicInteger maxInFlight = new AtomicInteger();
+
+		ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor();
+		for (int i = 0; i < 20; i++) {
+			executorService.submit(() -> gateway.call(Backend.REWARD_CENTRAL, () -> {
+				maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+				sleep(10);
+				return inFlight.decrementAndGet();
+			}));
+		}
+		executorService.shutdown();
+		assertTrue(executorService.awaitTermination(10, TimeUnit.SECONDS));
+
+		assertEquals(2, maxInFlight.get());
+		assertEquals(0, gateway.getInFlightCalls(Backend.REWARD_CENTRAL));
+	}
+
+	@Test
+	public void callsAreTimedPerBackend() {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		Metrics.addRegistry(registry);
+		try {
+			BackendGateway gateway = new BackendGateway(new EnumMap<>(Backend.class));
+
+			gateway.call(Backend.TRIP_PRICER, () -> "price");
+
+			Timer timer = registry.get(TourGuideMetrics.BACKEND_CALLS).tag("backend", "trip_pricer").timer();
+			assertEquals(1, timer.count());
+			assertEquals(0, registry.get(TourGuideMetrics.BACKEND_CALLS).tag("backend", "gps_util").timer().count());
+		} finally {
+			Metrics.removeRegistry(registry);
+		}
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
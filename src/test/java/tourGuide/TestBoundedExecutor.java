@@ -0,0 +1,81 @@
+package tourGuide;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import tourGuide.concurrent.BoundedExecutor;
+import tourGuide.concurrent.ExecutionMode;
+import tourGuide.concurrent.RejectionPolicy;
+
+public class TestBoundedExecutor {
+
+	@Test
+	public void callerRunsTaskWhenQueueIsFull() throws InterruptedException {
+		BoundedExecutor executor = new BoundedExecutor("test", 1, 1, RejectionPolicy.CALLER_RUNS);
+		CountDownLatch release = new CountDownLatch(1);
+		executor.execute(() -> await(release)); // occupies the only thread
+		executor.execute(() -> { });            // fills the queue
+
+		Thread[] runner = new Thread[1];
+		executor.execute(() -> runner[0] = Thread.currentThread());
+		release.countDown();
+		executor.shutdown();
+
+		assertSame(Thread.currentThread(), runner[0]);
+		assertEquals(1, executor.getRejectedTaskCount());
+	}
+
+	@Test(expected = RejectedExecutionException.class)
+	public void abortRefusesTaskWhenQueueIsFull() {
+		BoundedExecutor executor = new BoundedExecutor("test", 1, 1, RejectionPolicy.ABORT);
+		CountDownLatch release = new CountDownLatch(1);
+		try {
+			executor.execute(() -> await(release));
+			executor.execute(() -> { });
+			assertEquals(1, executor.getQueueDepth());
+
+			executor.execute(() -> { });
+		} finally {
+			release.countDown();
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void virtualModeKeepsTheBoundAndThePolicy() throws InterruptedException {
+		ExecutorService executor = ExecutionMode.VIRTUAL.newBoundedExecutor("test", 1, 1, RejectionPolicy.ABORT);
+		CountDownLatch release = new CountDownLatch(1);
+		Thread[] worker = new Thread[1];
+		try {
+			executor.execute(() -> {
+				worker[0] = Thread.currentThread();
+				await(release);
+			});
+			executor.execute(() -> { });
+			executor.execute(() -> { });
+			fail("the third task should have been refused");
+		} catch (RejectedExecutionException e) {
+			assertEquals(1, ((BoundedExecutor) executor).getRejectedTaskCount());
+		} finally {
+			release.countDown();
+			executor.shutdown();
+		}
+		assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+		assertTrue(worker[0].isVirtual());
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
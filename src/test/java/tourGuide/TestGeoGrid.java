@@ -0,0 +1,41 @@
+package tourGuide;
+
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import gpsUtil.location.Location;
+import tourGuide.geo.BoundingBox;
+import tourGuide.geo.GeoGrid;
+import tourGuide.geo.GeoMath;
+
+public class TestGeoGrid {
+
+	@Test
+	public void cellsOfABoxContainItsPoints() {
+		GeoGrid grid = new GeoGrid(1.0);
+		Location center = new Location(45.5, 179.5); // the box goes over the antimeridian
+		BoundingBox box = BoundingBox.around(center, GeoMath.MILES_PER_DEGREE);
+		GeoGrid.CellRange range = grid.cellsOverlapping(box);
+		Set<Long> cells = new HashSet<>();
+		range.forEach(cells::add);
+
+		assertEquals(range.count(), cells.size());
+		assertTrue(cells.contains(grid.cellOf(center.latitude, center.longitude)));
+		assertTrue(cells.contains(grid.cellOf(45.5, -179.5)));
+		assertTrue(cells.contains(grid.cellOf(46.4, 179.9)));
+		assertFalse(cells.contains(grid.cellOf(45.5, 170.5)));
+	}
+
+	@Test
+	public void latitudesAreClampedAndLongitudesWrap() {
+		GeoGrid grid = new GeoGrid(1.0);
+
+		assertEquals(grid.cellOf(89.5, 0), grid.cellOf(90, 0));
+		assertEquals(grid.cellOf(0, -180), grid.cellOf(0, 180));
+	}
+
+}
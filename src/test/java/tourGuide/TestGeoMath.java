@@ -0,0 +1,77 @@
+package tourGuide;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import gpsUtil.location.Location;
+import tourGuide.geo.BoundingBox;
+import tourGuide.geo.GeoMath;
+import tourGuide.geo.GeoPoint;
+
+public class TestGeoMath {
+
+	private final Random random = new Random(42);
+
+	@Test
+	public void precomputedDistanceIsTheSameAsGeoMath() {
+		for (int i = 0; i < 1000; i++) {
+			Location from = randomLocation();
+			Location to = randomLocation();
+
+			assertEquals(GeoMath.distanceInMiles(from, to), GeoPoint.of(from).distanceInMiles(GeoPoint.of(to)), 0.0);
+		}
+	}
+
+	@Test
+	public void haversineAgreesWithLawOfCosines() {
+		for (int i = 0; i < 1000; i++) {
+			Location from = randomLocation();
+			Location to = randomLocation();
+
+			assertEquals(GeoMath.distanceInMiles(from, to), GeoMath.haversineDistanceInMiles(from, to), 1e-6);
+		}
+	}
+
+	@Test
+	public void haversineStaysAccurateForVeryClosePoints() {
+		Location from = new Location(33.817595, -117.922008);
+		// about 10 centimeters north
+		Location to = new Location(33.817595 + 1e-6, -117.922008);
+
+		double expected = 1e-6 * GeoMath.MILES_PER_DEGREE;
+		assertEquals(expected, GeoMath.haversineDistanceInMiles(from, to), expected * 1e-6);
+	}
+
+	@Test
+	public void boundingBoxContainsEveryPointWithinTheDistance() {
+		for (int i = 0; i < 200; i++) {
+			Location center = randomLocation();
+			double miles = 10 + random.nextInt(3000);
+			BoundingBox box = BoundingBox.around(center, miles);
+
+			for (int j = 0; j < 200; j++) {
+				Location location = randomLocation();
+				if (!(GeoMath.distanceInMiles(center, location) > miles)) {
+					assertTrue(box.contains(location.latitude, location.longitude));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void boundingBoxAroundHalfTheEarthContainsEverything() {
+		BoundingBox box = BoundingBox.around(randomLocation(), GeoMath.HALF_EARTH_CIRCUMFERENCE_MILES);
+
+		assertTrue(box.coversAllLongitudes());
+		assertTrue(box.contains(-90, 0));
+		assertTrue(box.contains(90, 180));
+	}
+
+	private Location randomLocation() {
+		return new Location(-90 + random.nextDouble() * 180, -180 + random.nextDouble() * 360);
+	}
+
+}
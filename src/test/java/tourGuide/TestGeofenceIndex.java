@@ -0,0 +1,63 @@
+package tourGuide;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import tourGuide.attraction.GeofenceIndex;
+import tourGuide.geo.GeoMath;
+
+public class TestGeofenceIndex {
+
+	private final Random random = new Random(42);
+
+	@Test
+	public void fencesContainingFindsSameAttractionsAsFullScan() {
+		List<Attraction> attractions = randomAttractions(2000);
+
+		for (double miles : new double[] { 10, 200, 2000 }) {
+			GeofenceIndex geofences = new GeofenceIndex(attractions, miles, 1.0, 256);
+			for (int i = 0; i < 200; i++) {
+				Location location = i % 2 == 0 ? randomLocation() : nearLocation(attractions.get(i));
+				Set<Attraction> expected = attractions.stream()
+						.filter(attraction -> !(GeoMath.distanceInMiles(location, attraction) > miles))
+						.collect(Collectors.toSet());
+
+				assertEquals(expected, new HashSet<>(geofences.fencesContaining(location)));
+			}
+		}
+	}
+
+	@Test
+	public void fencesTooLargeForTheGridContainEveryLocation() {
+		List<Attraction> attractions = randomAttractions(20);
+		GeofenceIndex geofences = new GeofenceIndex(attractions, Integer.MAX_VALUE, 1.0, 256);
+
+		assertEquals(0, geofences.getCellCount());
+		assertEquals(20, geofences.fencesContaining(randomLocation()).size());
+	}
+
+	private List<Attraction> randomAttractions(int count) {
+		List<Attraction> attractions = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			Location location = randomLocation();
+			attractions.add(new Attraction("attraction" + i, "city", "state", location.latitude, location.longitude));
+		}
+		return attractions;
+	}
+
+	private Location nearLocation(Location location) {
+		double latitude = Math.max(-90, Math.min(90, location.latitude + random.nextDouble() * 0.3 - 0.15));
+		return new Location(latitude, location.longitude + random.nextDouble() * 0.3 - 0.15);
+	}
+
+	private Location randomLocation() {
+		return new Location(-90 + random.nextDouble() * 180, -180 + random.nextDouble() * 360);
+	}
+
+}
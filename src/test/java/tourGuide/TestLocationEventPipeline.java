@@ -0,0 +1,117 @@
+package tourGuide;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.Test;
+
+import tourGuide.model.User;
+import tourGuide.pipeline.EventRing;
+import tourGuide.pipeline.LocationEventPipeline;
+
+public class TestLocationEventPipeline {
+
+	@Test
+	public void ringKeepsTheOrderAndRefusesEventsWhenFull() {
+		EventRing<Integer> ring = new EventRing<>(3);
+		assertEquals(4, ring.getCapacity());
+		for (int i = 0; i < 4; i++) {
+			assertTrue(ring.offer(i));
+		}
+		assertFalse(ring.offer(4));
+
+		List<Integer> drained = new ArrayList<>();
+		assertEquals(2, ring.drainTo(drained, 2));
+		assertTrue(ring.offer(4));
+		assertTrue(ring.offer(5));
+		ring.drainTo(drained, Integer.MAX_VALUE);
+
+		assertEquals(List.of(0, 1, 2, 3, 4, 5), drained);
+		assertTrue(ring.isEmpty());
+	}
+
+	@Test
+	public void everyPublishedUserIsHandledBeforeTheStopReturns() throws InterruptedException {
+		List<User> users = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			users.add(new User(UUID.randomUUID(), "user" + i, "000", "user" + i + "@tourGuide.com"));
+		}
+		Map<User, AtomicInteger> handled = new ConcurrentHashMap<>();
+		Set<Thread> concurrentBatches = ConcurrentHashMap.newKeySet();
+		// small rings so that the publishers have to wait for the workers
+		LocationEventPipeline pipeline = LocationEventPipeline.start("test-events", 2, 16, 8, batch -> {
+			concurrentBatches.add(Thread.currentThread());
+			batch.forEach(user -> handled.computeIfAbsent(user, u -> new AtomicInteger()).incrementAndGet());
+		});
+
+		ExecutorService publishers = Executors.newVirtualThreadPerTaskExecutor();
+		for (int round = 0; round < 5; round++) {
+			users.forEach(user -> publishers.execute(() -> pipeline.publish(user)));
+		}
+		publishers.shutdown();
+		assertTrue(publishers.awaitTermination(10, TimeUnit.SECONDS));
+		pipeline.drainAndStop();
+
+		assertEquals(new HashSet<>(users), handled.keySet());
+		assertEquals(1000, pipeline.getPublishedCount());
+		assertEquals(0, pipeline.getDepth());
+		assertTrue(pipeline.getBatchCount() < 1000);
+		assertEquals(2, concurrentBatches.size());
+	}
+
+	@Test(timeout = 20_000)
+	public void usersPublishedDuringTheStopAreHandledOnceAtATime() throws InterruptedException {
+		List<User> users = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			users.add(new User(UUID.randomUUID(), "user" + i, "000", "user" + i + "@tourGuide.com"));
+		}
+		Set<User> inProgress = ConcurrentHashMap.newKeySet();
+		Set<User> handled = ConcurrentHashMap.newKeySet();
+		AtomicInteger overlaps = new AtomicInteger();
+		LocationEventPipeline pipeline = LocationEventPipeline.start("test-events", 2, 4, 4, batch -> {
+			for (User user : batch) {
+				if (!inProgress.add(user)) overlaps.incrementAndGet();
+			}
+			LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(200));
+			batch.forEach(inProgress::remove);
+			handled.addAll(batch);
+		});
+
+		ExecutorService publishers = Executors.newVirtualThreadPerTaskExecutor();
+		Set<User> published = ConcurrentHashMap.newKeySet();
+		for (int round = 0; round < 20; round++) {
+			users.forEach(user -> publishers.execute(() -> {
+				pipeline.publish(user);
+				published.add(user);
+			}));
+		}
+		Thread.sleep(5);
+		pipeline.drainAndStop();
+		publishers.shutdown();
+		assertTrue(publishers.awaitTermination(10, TimeUnit.SECONDS));
+
+		assertTrue(handled.containsAll(published));
+		assertEquals(0, overlaps.get());
+		assertEquals(0, pipeline.getDepth());
+	}
+
+	@Test
+	public void usersPublishedAfterTheStopAreHandledByTheCaller() {
+		List<Thread> handlers = new ArrayList<>();
+		LocationEventPipeline pipeline = LocationEventPipeline.start("test-events", 1, 16, 8,
+				batch -> handlers.add(Thread.currentThread()));
+		pipeline.drainAndStop();
+
+		pipeline.publish(new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com"));
+
+		assertEquals(List.of(Thread.currentThread()), handlers);
+	}
+
+}
@@ -0,0 +1,71 @@
+package tourGuide;
+
+import static org.junit.Assert.*;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import tourGuide.model.LocationHistory;
+
+public class TestLocationHistory {
+
+	private final UUID userId = UUID.randomUUID();
+
+	@Test
+	public void keepsOnlyTheLastLocationsWhenFull() {
+		LocationHistory history = new LocationHistory(3);
+		for (int i = 0; i < 5; i++) {
+			history.add(visitedLocation(i));
+		}
+
+		List<VisitedLocation> locations = history.snapshot();
+
+		assertEquals(3, locations.size());
+		assertEquals(2, locations.get(0).location.latitude, 0);
+		assertEquals(4, locations.get(2).location.latitude, 0);
+		assertEquals(4, history.latest().get().location.latitude, 0);
+		assertEquals(5, history.getAppendedCount());
+	}
+
+	@Test
+	public void snapshotFromSequenceReturnsOnlyNewerLocations() {
+		LocationHistory history = new LocationHistory(10);
+		for (int i = 0; i < 4; i++) {
+			history.add(visitedLocation(i));
+		}
+		long cursor = history.getAppendedCount();
+		history.add(visitedLocation(4));
+
+		List<VisitedLocation> locations = history.snapshot(cursor, history.getAppendedCount());
+
+		assertEquals(1, locations.size());
+		assertEquals(4, locations.get(0).location.latitude, 0);
+	}
+
+	@Test
+	public void clearKeepsSequenceNumbersGoing() {
+		LocationHistory history = new LocationHistory(10);
+		history.add(visitedLocation(0));
+		history.clear();
+		history.add(visitedLocation(1));
+
+		assertEquals(1, history.snapshot().size());
+		assertEquals(1, history.snapshot(0, 2).get(0).location.latitude, 0);
+		assertEquals(2, history.getAppendedCount());
+	}
+
+	@Test
+	public void emptyHistoryHasNoLatestLocation() {
+		assertFalse(new LocationHistory(10).latest().isPresent());
+	}
+
+	private VisitedLocation visitedLocation(int latitude) {
+		return new VisitedLocation(userId, new Location(latitude, 0), new Date());
+	}
+
+}
@@ -0,0 +1,109 @@
+package tourGuide;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import tourGuide.persistence.MappedLocationJournal;
+
+public class TestLocationJournal {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void appendedLocationsAreLoadedAfterReopening() throws IOException {
+		Path directory = folder.newFolder().toPath();
+		UUID jon = UUID.randomUUID();
+		UUID jane = UUID.randomUUID();
+		MappedLocationJournal journal = MappedLocationJournal.open(directory, 4, 100, 100, 0, TimeUnit.MINUTES);
+		for (int i = 0; i < 10; i++) {
+			journal.append(visitedLocation(jon, i));
+			journal.append(visitedLocation(jane, 100 + i));
+		}
+		journal.close();
+
+		MappedLocationJournal reopened = MappedLocationJournal.open(directory, 4, 100, 100, 0, TimeUnit.MINUTES);
+		Map<UUID, List<VisitedLocation>> loaded = reopened.load();
+		reopened.close();
+
+		assertEquals(5, reopened.getSegmentCount());
+		assertEquals(Arrays.asList(0L, 1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L), timesOf(loaded.get(jon)));
+		assertEquals(100.0, loaded.get(jane).get(0).location.latitude, 0.0);
+		assertEquals(-100.0, loaded.get(jane).get(0).location.longitude, 0.0);
+	}
+
+	@Test
+	public void compactionKeepsTheLastLocationsOfEachUser() throws IOException {
+		Path directory = folder.newFolder().toPath();
+		UUID jon = UUID.randomUUID();
+		UUID jane = UUID.randomUUID();
+		MappedLocationJournal journal = MappedLocationJournal.open(directory, 4, 100, 3, 0, TimeUnit.MINUTES);
+		for (int i = 0; i < 10; i++) {
+			journal.append(visitedLocation(jon, i));
+		}
+		journal.append(visitedLocation(jane, 42));
+		journal.flush();
+
+		journal.compact();
+		journal.close();
+
+		// the two full segments are compacted, the one being written is left as is
+		assertEquals(2, journal.getSegmentCount());
+		MappedLocationJournal reopened = MappedLocationJournal.open(directory, 4, 100, 100, 0, TimeUnit.MINUTES);
+		Map<UUID, List<VisitedLocation>> loaded = reopened.load();
+		reopened.close();
+		assertEquals(Arrays.asList(5L, 6L, 7L, 8L, 9L), timesOf(loaded.get(jon)));
+		assertEquals(Collections.singletonList(42L), timesOf(loaded.get(jane)));
+	}
+
+	@Test
+	public void reopeningGoesOnInThePartlyWrittenSegment() throws IOException {
+		Path directory = folder.newFolder().toPath();
+		UUID jon = UUID.randomUUID();
+		MappedLocationJournal journal = MappedLocationJournal.open(directory, 4, 100, 100, 0, TimeUnit.MINUTES);
+		journal.append(visitedLocation(jon, 0));
+		journal.append(visitedLocation(jon, 1));
+		journal.close();
+
+		MappedLocationJournal reopened = MappedLocationJournal.open(directory, 4, 100, 100, 0, TimeUnit.MINUTES);
+		reopened.append(visitedLocation(jon, 2));
+		reopened.close();
+
+		assertEquals(1, reopened.getSegmentCount());
+		MappedLocationJournal loaded = MappedLocationJournal.open(directory, 4, 100, 100, 0, TimeUnit.MINUTES);
+		assertEquals(Arrays.asList(0L, 1L, 2L), timesOf(loaded.load().get(jon)));
+		loaded.close();
+	}
+
+	@Test
+	public void locationsAppendedAfterTheCloseAreCountedAsDropped() throws IOException {
+		MappedLocationJournal journal = MappedLocationJournal.open(folder.newFolder().toPath(), 4, 100, 100, 0, TimeUnit.MINUTES);
+		journal.close();
+
+		journal.append(visitedLocation(UUID.randomUUID(), 0));
+
+		assertEquals(1, journal.getDroppedCount());
+		assertEquals(0, journal.getQueueDepth());
+	}
+
+	private static VisitedLocation visitedLocation(UUID userId, long time) {
+		return new VisitedLocation(userId, new Location(time, -time), new Date(time));
+	}
+
+	private static List<Long> timesOf(List<VisitedLocation> visitedLocations) {
+		List<Long> times = new ArrayList<>();
+		visitedLocations.forEach(visitedLocation -> times.add(visitedLocation.timeVisited.getTime()));
+		return times;
+	}
+
+}
@@ -57,13 +57,8 @@ public class TestPerformance {
 		Collection<Callable<Object>> tasks = new ArrayList<>();
 		allUsers.forEach(user ->
 				tasks.add(()->tourGuideService.trackUserLocation(user)));
-		ExecutorService executorService = Executors.newFixedThreadPool(100);
-			/* Benchmarks with 100_000 users:
-				 50 threads ->  3 min 24 sec
-				100 threads ->  3 min 21 sec (optimal)
-				400 threads ->  3 min 21 sec
-				600 threads ->  3 min 20 sec
-			 */
+		// the concurrency is limited per backend by the BackendGateway, no thread count to tune
+		ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor();
 		executorService.invokeAll(tasks);
 		executorService.shutdown();
 
@@ -93,13 +88,7 @@ public class TestPerformance {
 		Collection<Callable<Object>> tasks = new ArrayList<>();
 	    allUsers.forEach(user ->
 				tasks.add(Executors.callable(()->rewardsService.calculateRewards(user))));
-		ExecutorService executorService = Executors.newFixedThreadPool(600);
-			/* Benchmarks with 100_000 users:
-				400 threads -> 130 sec
-				500 threads -> 104 sec
-				600 threads -> 101 sec  (optimal)
-				700 threads -> 101 sec
-			 */
+		ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor();
 		executorService.invokeAll(tasks);
 		executorService.shutdown();
 
@@ -0,0 +1,100 @@
+package tourGuide;
+
+import static org.junit.Assert.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import tourGuide.cache.RewardPointsCache;
+
+public class TestRewardPointsCache {
+
+	@Test
+	public void secondLookupIsServedFromCache() {
+		RewardPointsCache cache = new RewardPointsCache(10, 1, TimeUnit.HOURS);
+		AtomicInteger loads = new AtomicInteger();
+		UUID attractionId = UUID.randomUUID();
+		UUID userId = UUID.randomUUID();
+
+		int first = cache.get(attractionId, userId, () -> 100 + loads.incrementAndGet());
+		int second = cache.get(new UUID(attractionId.getMostSignificantBits(), attractionId.getLeastSignificantBits()),
+				userId, () -> 100 + loads.incrementAndGet());
+
+		assertEquals(101, first);
+		assertEquals(101, second);
+		assertEquals(1, loads.get());
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+	}
+
+	@Test
+	public void expiredEntryIsLoadedAgain() {
+		RewardPointsCache cache = new RewardPointsCache(10, 0, TimeUnit.SECONDS);
+		AtomicInteger loads = new AtomicInteger();
+		UUID attractionId = UUID.randomUUID();
+		UUID userId = UUID.randomUUID();
+
+		cache.get(attractionId, userId, loads::incrementAndGet);
+		int points = cache.get(attractionId, userId, loads::incrementAndGet);
+
+		assertEquals(2, points);
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void oldestEntriesAreEvictedWhenFull() {
+		RewardPointsCache cache = new RewardPointsCache(2, 1, TimeUnit.HOURS);
+		UUID userId = UUID.randomUUID();
+		UUID oldest = UUID.randomUUID();
+
+		cache.get(oldest, userId, () -> 1);
+		cache.get(UUID.randomUUID(), userId, () -> 2);
+		cache.get(UUID.randomUUID(), userId, () -> 3);
+
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictionCount());
+		assertEquals(4, cache.get(oldest, userId, () -> 4));
+	}
+
+	@Test
+	public void expiredEntriesAreRemovedOnInsertion() throws InterruptedException {
+		RewardPointsCache cache = new RewardPointsCache(10, 1, TimeUnit.MILLISECONDS);
+		UUID userId = UUID.randomUUID();
+
+		cache.get(UUID.randomUUID(), userId, () -> 1);
+		cache.get(UUID.randomUUID(), userId, () -> 2);
+		TimeUnit.MILLISECONDS.sleep(5);
+		cache.get(UUID.randomUUID(), userId, () -> 3);
+
+		assertEquals(1, cache.size());
+		assertEquals(0, cache.getEvictionCount());
+	}
+
+	@Test
+	public void sizeStaysBoundedWhenInvalidatedConcurrently() throws InterruptedException {
+		RewardPointsCache cache = new RewardPointsCache(50, 1, TimeUnit.HOURS);
+		UUID userId = UUID.randomUUID();
+		Thread[] readers = new Thread[4];
+		for (int i = 0; i < readers.length; i++) {
+			readers[i] = new Thread(() -> {
+				for (int j = 0; j < 20_000; j++) {
+					cache.get(UUID.randomUUID(), userId, () -> 1);
+				}
+			});
+			readers[i].start();
+		}
+		for (int i = 0; i < 200; i++) {
+			cache.invalidateAll();
+		}
+		for (Thread reader : readers) {
+			reader.join();
+		}
+
+		cache.get(UUID.randomUUID(), userId, () -> 1);
+		assertTrue(cache.size() <= 50);
+	}
+
+}
@@ -0,0 +1,190 @@
+package tourGuide;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.junit.Test;
+
+import gpsUtil.GpsUtil;
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+import rewardCentral.RewardCentral;
+import tourGuide.job.RewardRecomputationJob;
+import tourGuide.job.RewardRecomputationProgress;
+import tourGuide.job.RewardRecomputationState;
+import tourGuide.model.User;
+import tourGuide.pipeline.LocationEventPipeline;
+import tourGuide.registry.UserRegistry;
+import tourGuide.service.RewardsService;
+
+public class TestRewardRecomputationJob {
+
+	private final RewardsService rewardsService = new RewardsService(new GpsUtil(), new RewardCentral() {
+		@Override
+		public int getAttractionRewardPoints(UUID attractionId, UUID userId) {
+			return 1;
+		}
+	});
+
+	@Test
+	public void recomputesEveryUserThenSkipsTheUpToDateOnes() throws InterruptedException {
+		UserRegistry userRegistry = usersAtFirstAttraction(500);
+		LocationEventPipeline pipeline = newPipeline(rewardsService::calculateRewards);
+		RewardRecomputationJob job = new RewardRecomputationJob(userRegistry, rewardsService, pipeline, 4, 16);
+
+		job.start(0);
+		assertTrue(job.awaitCompletion(30, TimeUnit.SECONDS));
+		pipeline.drainAndStop();
+		RewardRecomputationProgress progress = job.getProgress();
+		assertEquals(RewardRecomputationState.COMPLETED, progress.getState());
+		assertEquals(500, progress.getProcessedUsers());
+		assertEquals(0, progress.getSkippedUsers());
+		userRegistry.forEach(user -> assertEquals(1, user.getUserRewards().size()));
+
+		job.start(0);
+		assertTrue(job.awaitCompletion(30, TimeUnit.SECONDS));
+		assertEquals(500, job.getProgress().getSkippedUsers());
+	}
+
+	@Test
+	public void cancelledRunIsResumedByTheNextOne() throws InterruptedException {
+		UserRegistry userRegistry = usersAtFirstAttraction(400);
+		LocationEventPipeline pipeline = newPipeline(rewardsService::calculateRewards);
+		RewardRecomputationJob job = new RewardRecomputationJob(userRegistry, rewardsService, pipeline, 2, 10);
+
+		job.start(400);
+		Thread.sleep(300);
+		RewardRecomputationProgress running = job.getProgress();
+		assertEquals(RewardRecomputationState.RUNNING, running.getState());
+		assertNotNull(running.getEtaSeconds());
+		job.cancel();
+		assertTrue(job.awaitCompletion(30, TimeUnit.SECONDS));
+		pipeline.drainAndStop(); // the published users are evaluated, then the next run evaluates on its own threads
+		RewardRecomputationProgress cancelled = job.getProgress();
+		assertEquals(RewardRecomputationState.CANCELLED, cancelled.getState());
+		assertTrue(cancelled.getProcessedUsers() < 400);
+
+		job.start(0);
+		assertTrue(job.awaitCompletion(30, TimeUnit.SECONDS));
+		assertEquals(RewardRecomputationState.COMPLETED, job.getProgress().getState());
+		assertEquals(cancelled.getProcessedUsers(), job.getProgress().getSkippedUsers());
+		userRegistry.forEach(user -> assertEquals(1, user.getUserRewards().size()));
+	}
+
+	@Test
+	public void usersAreNeverEvaluatedByTheJobAndThePipelineAtOnce() throws InterruptedException {
+		UserRegistry userRegistry = usersAtFirstAttraction(300);
+		Set<User> inProgress = ConcurrentHashMap.newKeySet();
+		AtomicInteger overlaps = new AtomicInteger();
+		LocationEventPipeline pipeline = newPipeline(batch -> {
+			batch.forEach(user -> {
+				if (!inProgress.add(user)) overlaps.incrementAndGet();
+			});
+			try {
+				rewardsService.calculateRewards(batch);
+			} finally {
+				batch.forEach(inProgress::remove);
+			}
+		});
+		RewardRecomputationJob job = new RewardRecomputationJob(userRegistry, rewardsService, pipeline, 4, 8);
+
+		// the tracking publishes the same users while the job runs
+		ExecutorService tracking = Executors.newFixedThreadPool(4);
+		for (int round = 0; round < 3; round++) {
+			userRegistry.forEach(user -> tracking.execute(() -> pipeline.publish(user)));
+		}
+		job.start(0);
+		tracking.shutdown();
+		assertTrue(tracking.awaitTermination(30, TimeUnit.SECONDS));
+		assertTrue(job.awaitCompletion(30, TimeUnit.SECONDS));
+		pipeline.drainAndStop();
+
+		assertEquals(0, overlaps.get());
+		assertEquals(RewardRecomputationState.COMPLETED, job.getProgress().getState());
+		userRegistry.forEach(user -> assertEquals(1, user.getUserRewards().size()));
+	}
+
+	@Test
+	public void usersCountOnceTheyAreEvaluated() throws InterruptedException {
+		UserRegistry userRegistry = usersAtFirstAttraction(200);
+		LocationEventPipeline pipeline = newPipeline(batch -> {
+			sleep(5);
+			rewardsService.calculateRewards(batch);
+		});
+		RewardRecomputationJob job = new RewardRecomputationJob(userRegistry, rewardsService, pipeline, 2, 16);
+
+		job.start(0);
+		assertTrue(job.awaitCompletion(30, TimeUnit.SECONDS));
+
+		// no drain needed: the run is only over once the pipeline has evaluated every user it published
+		assertEquals(200, job.getProgress().getProcessedUsers());
+		userRegistry.forEach(user -> assertTrue(rewardsService.isUpToDate(user)));
+		pipeline.drainAndStop();
+	}
+
+	@Test
+	public void failedEvaluationsAreCountedAndNotProcessed() throws InterruptedException {
+		UserRegistry userRegistry = usersAtFirstAttraction(100);
+		LocationEventPipeline pipeline = newPipeline(batch -> {
+			throw new IllegalStateException("RewardCentral is down");
+		});
+		RewardRecomputationJob job = new RewardRecomputationJob(userRegistry, rewardsService, pipeline, 2, 16);
+
+		job.start(0);
+		assertTrue(job.awaitCompletion(30, TimeUnit.SECONDS));
+		pipeline.drainAndStop();
+
+		RewardRecomputationProgress progress = job.getProgress();
+		assertEquals(RewardRecomputationState.COMPLETED, progress.getState());
+		assertEquals(0, progress.getProcessedUsers());
+		assertTrue(progress.getFailedBatches() > 0);
+	}
+
+	@Test
+	public void theThrottlePacesTheLookups() throws InterruptedException {
+		UserRegistry userRegistry = usersAtFirstAttraction(40);
+		LocationEventPipeline pipeline = newPipeline(rewardsService::calculateRewards);
+		RewardRecomputationJob job = new RewardRecomputationJob(userRegistry, rewardsService, pipeline, 2, 16);
+
+		// one lookup per user, the first one from the saved token
+		long start = System.nanoTime();
+		job.start(100);
+		assertTrue(job.awaitCompletion(30, TimeUnit.SECONDS));
+		long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		pipeline.drainAndStop();
+
+		assertEquals(40, job.getProgress().getProcessedUsers());
+		assertTrue("elapsed " + elapsedMillis + " ms", elapsedMillis >= 350);
+	}
+
+	private static LocationEventPipeline newPipeline(Consumer<Collection<User>> batchHandler) {
+		return LocationEventPipeline.start("test-recomputation", 2, 64, 16, batchHandler);
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private UserRegistry usersAtFirstAttraction(int count) {
+		List<Attraction> attractions = rewardsService.getAttractionCatalog().getAttractions();
+		UserRegistry userRegistry = new UserRegistry(4);
+		for (int i = 0; i < count; i++) {
+			User user = new User(UUID.randomUUID(), "user" + i, "000", "user" + i + "@tourGuide.com");
+			user.addToVisitedLocations(new VisitedLocation(user.getUserId(), attractions.get(0), new Date()));
+			userRegistry.register(user);
+		}
+		return userRegistry;
+	}
+
+}
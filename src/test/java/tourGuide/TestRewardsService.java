@@ -2,9 +2,17 @@ package tourGuide;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
 
@@ -12,9 +20,14 @@ import gpsUtil.GpsUtil;
 import gpsUtil.location.Attraction;
 import gpsUtil.location.VisitedLocation;
 import rewardCentral.RewardCentral;
+import tourGuide.concurrent.BoundedExecutor;
+import tourGuide.concurrent.ExecutionMode;
+import tourGuide.concurrent.RejectionPolicy;
 import tourGuide.helper.InternalTestHelper;
+import tourGuide.pipeline.LocationEventPipeline;
 import tourGuide.service.RewardsService;
 import tourGuide.service.TourGuideService;
+import tourGuide.model.RewardEvaluationCursor;
 import tourGuide.model.User;
 import tourGuide.model.UserReward;
 
@@ -60,5 +73,164 @@ public class TestRewardsService {
 
 		assertEquals(gpsUtil.getAttractions().size(), userRewards.size());
 	}
-	
+
+	@Test
+	public void calculateRewardsOnlyEvaluatesNewLocations() {
+		GpsUtil gpsUtil = new GpsUtil();
+		AtomicInteger rewardLookups = new AtomicInteger();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral() {
+			@Override
+			public int getAttractionRewardPoints(UUID attractionId, UUID userId) {
+				rewardLookups.incrementAndGet();
+				return 1;
+			}
+		});
+		List<Attraction> attractions = rewardsService.getAttractionCatalog().getAttractions();
+
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		user.addToVisitedLocations(new VisitedLocation(user.getUserId(), attractions.get(0), new Date()));
+		rewardsService.calculateRewards(user);
+		user.addToVisitedLocations(new VisitedLocation(user.getUserId(), attractions.get(0), new Date()));
+		rewardsService.calculateRewards(user);
+		user.addToVisitedLocations(new VisitedLocation(user.getUserId(), attractions.get(1), new Date()));
+		rewardsService.calculateRewards(user);
+
+		assertEquals(2, user.getUserRewards().size());
+		assertEquals(2, rewardLookups.get());
+	}
+
+	@Test
+	public void calculateRewardsOfSeveralUsersAtOnce() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral() {
+			@Override
+			public int getAttractionRewardPoints(UUID attractionId, UUID userId) {
+				return 1;
+			}
+		});
+		List<Attraction> attractions = rewardsService.getAttractionCatalog().getAttractions();
+
+		List<User> users = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			User user = new User(UUID.randomUUID(), "user" + i, "000", "user" + i + "@tourGuide.com");
+			user.addToVisitedLocations(new VisitedLocation(user.getUserId(), attractions.get(0), new Date()));
+			user.addToVisitedLocations(new VisitedLocation(user.getUserId(), attractions.get(i % 2 + 1), new Date()));
+			users.add(user);
+		}
+		rewardsService.calculateRewards(users);
+
+		for (User user : users) {
+			assertEquals(2, user.getUserRewards().size());
+		}
+	}
+
+	@Test
+	public void rejectedLookupsLeaveTheUsersToBeEvaluatedAgain() throws InterruptedException {
+		GpsUtil gpsUtil = new GpsUtil();
+		BoundedExecutor executor = new BoundedExecutor("test-lookup", 1, 1, RejectionPolicy.ABORT);
+		RewardsService rewardsService = new RewardsService(gpsUtil, constantRewardCentral(), ExecutionMode.PLATFORM, executor);
+		List<Attraction> attractions = rewardsService.getAttractionCatalog().getAttractions();
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		user.addToVisitedLocations(new VisitedLocation(user.getUserId(), attractions.get(0), new Date()));
+
+		CountDownLatch release = new CountDownLatch(1);
+		executor.execute(() -> await(release)); // occupies the only thread
+		executor.execute(() -> { });            // fills the queue
+		try {
+			rewardsService.calculateRewards(user);
+			fail("the lookup should have been refused");
+		} catch (RejectedExecutionException e) {
+			assertSame(RewardEvaluationCursor.START, user.getRewardEvaluationCursor());
+		}
+		release.countDown();
+		while (executor.getCompletedTaskCount() < 2) {
+			Thread.sleep(1); // the blocking task and the queued one leave room for the lookup
+		}
+
+		rewardsService.calculateRewards(user);
+		assertEquals(1, user.getUserRewards().size());
+		executor.shutdown();
+	}
+
+	@Test(timeout = 10_000)
+	public void discardedLookupsFailInsteadOfBlocking() throws InterruptedException {
+		GpsUtil gpsUtil = new GpsUtil();
+		BoundedExecutor executor = new BoundedExecutor("test-lookup", 1, 1, RejectionPolicy.DISCARD_OLDEST);
+		RewardsService rewardsService = new RewardsService(gpsUtil, constantRewardCentral(), ExecutionMode.PLATFORM, executor);
+		List<Attraction> attractions = rewardsService.getAttractionCatalog().getAttractions();
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		user.addToVisitedLocations(new VisitedLocation(user.getUserId(), attractions.get(0), new Date()));
+		user.addToVisitedLocations(new VisitedLocation(user.getUserId(), attractions.get(1), new Date()));
+
+		CountDownLatch release = new CountDownLatch(1);
+		executor.execute(() -> await(release)); // the two lookups queue behind it, the second one drops the first
+		Executors.newSingleThreadScheduledExecutor().schedule(release::countDown, 200, TimeUnit.MILLISECONDS);
+		try {
+			rewardsService.calculateRewards(user);
+			fail("the dropped lookup should have failed the evaluation");
+		} catch (RuntimeException e) {
+			assertEquals(1, user.getUserRewards().size());
+			assertSame(RewardEvaluationCursor.START, user.getRewardEvaluationCursor());
+		}
+
+		rewardsService.calculateRewards(user);
+		assertEquals(2, user.getUserRewards().size());
+		executor.shutdown();
+	}
+
+	@Test(timeout = 10_000)
+	public void anEvaluationFinishingLateKeepsTheCursorOfThePipeline() throws Exception {
+		GpsUtil gpsUtil = new GpsUtil();
+		CountDownLatch firstLookupStarted = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger lookups = new AtomicInteger();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral() {
+			@Override
+			public int getAttractionRewardPoints(UUID attractionId, UUID userId) {
+				if (lookups.getAndIncrement() == 0) {
+					firstLookupStarted.countDown();
+					await(release);
+				}
+				return 1;
+			}
+		});
+		List<Attraction> attractions = rewardsService.getAttractionCatalog().getAttractions();
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		LocationEventPipeline pipeline = LocationEventPipeline.start("test-rewards", 1, 16, 8, rewardsService::calculateRewards);
+		ExecutorService caller = Executors.newSingleThreadExecutor();
+
+		user.addToVisitedLocations(new VisitedLocation(user.getUserId(), attractions.get(0), new Date()));
+		Future<?> lateEvaluation = caller.submit(() -> rewardsService.calculateRewards(user));
+		firstLookupStarted.await();
+		user.addToVisitedLocations(new VisitedLocation(user.getUserId(), attractions.get(1), new Date()));
+		pipeline.publish(user);
+		while (!rewardsService.isUpToDate(user)) {
+			Thread.sleep(1);
+		}
+		release.countDown();
+		lateEvaluation.get();
+		pipeline.drainAndStop();
+		caller.shutdown();
+
+		assertTrue(rewardsService.isUpToDate(user));
+		assertEquals(2, user.getUserRewards().size());
+	}
+
+	private static RewardCentral constantRewardCentral() {
+		return new RewardCentral() {
+			@Override
+			public int getAttractionRewardPoints(UUID attractionId, UUID userId) {
+				return 1;
+			}
+		};
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
 }
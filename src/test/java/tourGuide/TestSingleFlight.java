@@ -0,0 +1,71 @@
+package tourGuide;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import tourGuide.concurrent.SingleFlight;
+
+public class TestSingleFlight {
+
+	@Test
+	public void concurrentCallersShareOneCall() throws Exception {
+		SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+		AtomicInteger calls = new AtomicInteger();
+		CountDownLatch release = new CountDownLatch(1);
+
+		ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor();
+		List<Future<Integer>> results = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			results.add(executorService.submit(() -> singleFlight.call("jon", () -> {
+				await(release);
+				return calls.incrementAndGet();
+			})));
+		}
+		while (singleFlight.getSharedCallCount() < 9) {
+			Thread.sleep(1);
+		}
+		release.countDown();
+
+		for (Future<Integer> result : results) {
+			assertEquals(1, (int) result.get(10, TimeUnit.SECONDS));
+		}
+		executorService.shutdown();
+		assertEquals(1, calls.get());
+		assertEquals(0, singleFlight.getInFlightCount());
+	}
+
+	@Test
+	public void nextCallerStartsANewCallOnceCompleted() {
+		SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+		AtomicInteger calls = new AtomicInteger();
+
+		singleFlight.call("jon", calls::incrementAndGet);
+		int second = singleFlight.callAsync("jon", calls::incrementAndGet, Runnable::run).join();
+
+		assertEquals(2, second);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void failureIsThrownToTheCaller() {
+		SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+
+		singleFlight.call("jon", () -> {
+			throw new IllegalStateException("GPS unavailable");
+		});
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
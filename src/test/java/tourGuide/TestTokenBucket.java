@@ -0,0 +1,28 @@
+package tourGuide;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import tourGuide.tracker.TokenBucket;
+
+public class TestTokenBucket {
+
+	@Test
+	public void acquireIsPacedToTheRate() throws InterruptedException {
+		TokenBucket tokenBucket = new TokenBucket(100, 1);
+
+		long start = System.nanoTime();
+		for (int i = 0; i < 21; i++) {
+			tokenBucket.acquire();
+		}
+		long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		// the first token is available at once, the next 20 come every 10 ms
+		assertTrue("elapsed " + elapsedMillis, elapsedMillis >= 190);
+		assertTrue("elapsed " + elapsedMillis, elapsedMillis < 1000);
+	}
+
+}
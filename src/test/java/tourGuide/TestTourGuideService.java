@@ -1,19 +1,31 @@
 package tourGuide;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import gpsUtil.location.Location;
 import org.javamoney.moneta.Money;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import gpsUtil.GpsUtil;
 import gpsUtil.location.VisitedLocation;
 import rewardCentral.RewardCentral;
+import tourGuide.dto.CurrentLocationsPage;
 import tourGuide.dto.NearbyAttractionDTO;
 import tourGuide.helper.InternalTestHelper;
 import tourGuide.model.UserPreferences;
+import tourGuide.persistence.MappedLocationJournal;
 import tourGuide.service.RewardsService;
 import tourGuide.service.TourGuideService;
 import tourGuide.model.User;
@@ -23,6 +35,9 @@ import static org.junit.Assert.*;
 
 public class TestTourGuideService {
 
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
 	@Test
 	public void getUserLocation() {
 		GpsUtil gpsUtil = new GpsUtil();
@@ -36,6 +51,29 @@ public class TestTourGuideService {
 		assertEquals(visitedLocation.userId, user.getUserId());
 	}
 	
+	@Test
+	public void staleLocationIsReturnedThenRefreshed() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(gpsUtil, rewardsService);
+
+		User staleUser = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		VisitedLocation staleLocation = new VisitedLocation(staleUser.getUserId(), new Location(10, 10),
+				new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1)));
+		staleUser.addTrackedLocation(staleLocation);
+		User freshUser = new User(UUID.randomUUID(), "jane", "000", "jane@tourGuide.com");
+		freshUser.addTrackedLocation(new VisitedLocation(freshUser.getUserId(), new Location(10, 10), new Date()));
+
+		VisitedLocation returned = tourGuideService.getUserLocation(staleUser);
+		tourGuideService.getUserLocation(freshUser);
+		tourGuideService.stopTrackingUsersAndCompleteTasks();
+
+		assertSame(staleLocation, returned);
+		assertEquals(2, staleUser.getVisitedLocations().size());
+		assertEquals(1, freshUser.getVisitedLocations().size());
+	}
+
 	@Test
 	public void addUser() {
 		GpsUtil gpsUtil = new GpsUtil();
@@ -127,6 +165,25 @@ public class TestTourGuideService {
 		assertEquals(5, providers.size());
 	}
 
+	@Test
+	public void asyncVariantsCompleteWithTheSameResults() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(gpsUtil, rewardsService);
+
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		tourGuideService.addUser(user);
+		CompletableFuture<VisitedLocation> visitedLocation = tourGuideService.trackUserLocationAsync(user);
+		CompletableFuture<List<Provider>> providers = tourGuideService.getTripDealsAsync(user);
+		CompletableFuture<List<NearbyAttractionDTO>> attractions = tourGuideService.getNearByAttractionsAsync(user.getUserName());
+
+		assertEquals(user.getUserId(), visitedLocation.join().userId);
+		assertEquals(5, providers.join().size());
+		assertEquals(5, attractions.join().size());
+		tourGuideService.stopTrackingUsersAndCompleteTasks();
+	}
+
 	@Test
 	public void getAllCurrentLocations() {
 		GpsUtil gpsUtil = new GpsUtil();
@@ -140,6 +197,106 @@ public class TestTourGuideService {
 		assertEquals(5, locations.size());
 	}
 
+	@Test
+	public void getCurrentLocationsPagesThroughStoredLocations() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		InternalTestHelper.setInternalUserNumber(5);
+		TourGuideService tourGuideService = new TourGuideService(gpsUtil, rewardsService);
+		tourGuideService.addUser(new User(UUID.randomUUID(), "newcomer", "000", "newcomer@tourGuide.com"));
+
+		Set<UUID> seen = new HashSet<>();
+		int pages = 0;
+		int usersWithoutLocation = 0;
+		UUID cursor = null;
+		do {
+			CurrentLocationsPage page = tourGuideService.getCurrentLocations(cursor, 2);
+			page.getLocations().forEach(visitedLocation -> assertTrue(seen.add(visitedLocation.userId)));
+			usersWithoutLocation += page.getUsersWithoutLocation();
+			cursor = page.getNextCursor();
+			pages++;
+		} while (cursor != null);
+
+		tourGuideService.stopTrackingUsersAndCompleteTasks();
+		assertEquals(3, pages);
+		assertEquals(6, seen.size() + usersWithoutLocation); // unless the tracker already located the newcomer
+	}
+
+	@Test
+	public void sameSeedGivesSameInternalUsers() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		InternalTestHelper.setInternalUserNumber(20);
+		InternalTestHelper.setInternalUserSeed(42L);
+		try {
+			TourGuideService first = new TourGuideService(gpsUtil, rewardsService);
+			TourGuideService second = new TourGuideService(gpsUtil, rewardsService);
+			first.stopTrackingUsersAndCompleteTasks();
+			second.stopTrackingUsersAndCompleteTasks();
+
+			for (User user : first.getAllUsers()) {
+				User sameUser = second.getUser(user.getUserName());
+				assertEquals(user.getUserId(), sameUser.getUserId());
+				assertEquals(user.getVisitedLocations().get(0).location.latitude,
+						sameUser.getVisitedLocations().get(0).location.latitude, 0.0);
+			}
+		} finally {
+			InternalTestHelper.setInternalUserSeed(null);
+		}
+	}
+
+	@Test
+	public void internalUsersAreLoadedFromSnapshot() throws IOException {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		InternalTestHelper.setInternalUserNumber(20);
+		Path snapshot = Files.createTempDirectory("tourGuide").resolve("users.snapshot");
+		InternalTestHelper.setInternalUserSnapshot(snapshot);
+		try {
+			TourGuideService generated = new TourGuideService(gpsUtil, rewardsService);
+			TourGuideService loaded = new TourGuideService(gpsUtil, rewardsService);
+			generated.stopTrackingUsersAndCompleteTasks();
+			loaded.stopTrackingUsersAndCompleteTasks();
+
+			assertTrue(Files.exists(snapshot));
+			for (User user : generated.getAllUsers()) {
+				assertEquals(user.getUserId(), loaded.getUser(user.getUserName()).getUserId());
+			}
+		} finally {
+			InternalTestHelper.setInternalUserSnapshot(null);
+			Files.deleteIfExists(snapshot);
+			Files.deleteIfExists(snapshot.getParent());
+		}
+	}
+
+	@Test
+	public void trackedLocationsAreRestoredAfterARestart() throws IOException {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral());
+		InternalTestHelper.setInternalUserNumber(5);
+		InternalTestHelper.setInternalUserSeed(7L);
+		Path directory = folder.newFolder().toPath();
+		try {
+			MappedLocationJournal journal = MappedLocationJournal.open(directory, 16, 100, 100, 0, TimeUnit.MINUTES);
+			TourGuideService beforeRestart = new TourGuideService(gpsUtil, rewardsService, journal);
+			VisitedLocation tracked = beforeRestart.trackUserLocation(beforeRestart.getUser("internalUser0"));
+			beforeRestart.stopTrackingUsersAndCompleteTasks();
+			journal.close();
+
+			MappedLocationJournal reopened = MappedLocationJournal.open(directory, 16, 100, 100, 0, TimeUnit.MINUTES);
+			TourGuideService afterRestart = new TourGuideService(gpsUtil, rewardsService, reopened);
+			afterRestart.stopTrackingUsersAndCompleteTasks();
+			reopened.close();
+
+			// the tracker may have located the user again, the tracked location is not necessarily the last one
+			assertTrue(afterRestart.getUser("internalUser0").getVisitedLocations().stream()
+					.anyMatch(restored -> restored.timeVisited.equals(tracked.timeVisited)
+							&& restored.location.latitude == tracked.location.latitude));
+		} finally {
+			InternalTestHelper.setInternalUserSeed(null);
+		}
+	}
+
 	@Test
 	public void setUserPreferences() {
 		GpsUtil gpsUtil = new GpsUtil();
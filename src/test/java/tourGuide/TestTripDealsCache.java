@@ -0,0 +1,75 @@
+package tourGuide;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.javamoney.moneta.Money;
+import org.junit.Test;
+
+import tourGuide.cache.TripDealsCache;
+import tourGuide.cache.TripDealsFingerprint;
+import tripPricer.Provider;
+
+public class TestTripDealsCache {
+
+	@Test
+	public void sameFingerprintIsServedFromCache() {
+		TripDealsCache cache = new TripDealsCache(1, TimeUnit.HOURS);
+		AtomicInteger loads = new AtomicInteger();
+		UUID userId = UUID.randomUUID();
+
+		List<Provider> first = cache.get(userId, fingerprint(2, 100), () -> providers(loads));
+		List<Provider> second = cache.get(userId, fingerprint(2, 100), () -> providers(loads));
+
+		assertSame(first, second);
+		assertEquals(1, loads.get());
+		assertEquals(1, cache.getHitCount());
+	}
+
+	@Test
+	public void changedFingerprintLoadsNewDeals() {
+		TripDealsCache cache = new TripDealsCache(1, TimeUnit.HOURS);
+		AtomicInteger loads = new AtomicInteger();
+		UUID userId = UUID.randomUUID();
+
+		cache.get(userId, fingerprint(2, 100), () -> providers(loads));
+		cache.get(userId, fingerprint(2, 150), () -> providers(loads));
+		cache.get(userId, fingerprint(3, 150), () -> providers(loads));
+
+		assertEquals(3, loads.get());
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void invalidatedOrExpiredDealsAreLoadedAgain() {
+		TripDealsCache cache = new TripDealsCache(1, TimeUnit.HOURS);
+		TripDealsCache expiringCache = new TripDealsCache(0, TimeUnit.SECONDS);
+		AtomicInteger loads = new AtomicInteger();
+		UUID userId = UUID.randomUUID();
+
+		cache.get(userId, fingerprint(2, 100), () -> providers(loads));
+		cache.invalidate(userId);
+		cache.get(userId, fingerprint(2, 100), () -> providers(loads));
+		expiringCache.get(userId, fingerprint(2, 100), () -> providers(loads));
+		expiringCache.get(userId, fingerprint(2, 100), () -> providers(loads));
+
+		assertEquals(4, loads.get());
+	}
+
+	private static TripDealsFingerprint fingerprint(int adults, int rewardPointsTotal) {
+		return new TripDealsFingerprint(adults, 0, 1, rewardPointsTotal, Money.of(0, "USD"), Money.of(1000, "USD"));
+	}
+
+	private static List<Provider> providers(AtomicInteger loads) {
+		loads.incrementAndGet();
+		List<Provider> providers = new ArrayList<>();
+		providers.add(new Provider(UUID.randomUUID(), "provider", 100));
+		return providers;
+	}
+
+}
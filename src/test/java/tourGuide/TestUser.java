@@ -0,0 +1,48 @@
+package tourGuide;
+
+import static org.junit.Assert.*;
+
+import java.util.Date;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import tourGuide.model.User;
+import tourGuide.model.UserReward;
+
+public class TestUser {
+
+	@Test
+	public void addUserRewardIgnoresSecondRewardForSameAttraction() {
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		Attraction disneyland = new Attraction("Disneyland", "Anaheim", "CA", 33.817595D, -117.922008D);
+		Attraction jacksonHole = new Attraction("Jackson Hole", "Jackson Hole", "WY", 43.582767D, -110.821999D);
+		VisitedLocation visitedLocation = new VisitedLocation(user.getUserId(), disneyland, new Date());
+
+		user.addUserReward(new UserReward(visitedLocation, disneyland, 10));
+		user.addUserReward(new UserReward(visitedLocation, jacksonHole, 20));
+		user.addUserReward(new UserReward(visitedLocation, disneyland, 30));
+
+		assertEquals(2, user.getUserRewards().size());
+		assertSame(disneyland, user.getUserRewards().get(0).attraction);
+		assertTrue(user.hasRewardFor(jacksonHole));
+		assertEquals(30, user.getRewardPointsTotal());
+	}
+
+	@Test
+	public void onlyTrackedLocationsSetTheLatestLocationTimestamp() {
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		Date tracked = new Date(1_000);
+		Date generated = new Date(2_000);
+
+		user.addTrackedLocation(new VisitedLocation(user.getUserId(), new Location(10, 10), tracked));
+		user.addToVisitedLocations(new VisitedLocation(user.getUserId(), new Location(20, 20), generated));
+
+		assertEquals(tracked, user.getLatestLocationTimestamp());
+		assertEquals(generated, user.getLastVisitedLocation().orElseThrow().timeVisited);
+	}
+
+}
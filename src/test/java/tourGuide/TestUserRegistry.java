@@ -0,0 +1,103 @@
+package tourGuide;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import tourGuide.model.User;
+import tourGuide.registry.UserRegistry;
+
+public class TestUserRegistry {
+
+	@Test
+	public void usersAreFoundByNameAndById() {
+		UserRegistry registry = new UserRegistry(4);
+		User user = newUser("jon");
+
+		assertTrue(registry.register(user));
+
+		assertSame(user, registry.findByName("jon").orElseThrow());
+		assertSame(user, registry.findById(user.getUserId()).orElseThrow());
+		assertFalse(registry.findByName("jane").isPresent());
+	}
+
+	@Test
+	public void concurrentRegistrationsOfSameNameKeepOneUser() throws Exception {
+		UserRegistry registry = new UserRegistry(4);
+		ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor();
+		List<Future<Boolean>> registrations = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			registrations.add(executorService.submit(() -> registry.register(newUser("jon"))));
+		}
+
+		int registered = 0;
+		for (Future<Boolean> registration : registrations) {
+			if (registration.get()) registered++;
+		}
+		executorService.shutdown();
+		assertEquals(1, registered);
+		assertEquals(1, registry.size());
+	}
+
+	@Test
+	public void aUserFoundByNameStaysRegistered() throws Exception {
+		UserRegistry registry = new UserRegistry(4);
+		UUID userId = UUID.randomUUID();
+		ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor();
+		List<Future<Boolean>> registrations = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			String userName = "jon" + i;
+			registrations.add(executorService.submit(() -> registry.register(new User(userId, userName, "000", userName + "@tourGuide.com"))));
+		}
+		// every user seen by name while the others register under the same id must still be there at the end
+		Set<String> seen = new HashSet<>();
+		while (!registrations.stream().allMatch(Future::isDone)) {
+			for (int i = 0; i < 100; i++) {
+				if (registry.findByName("jon" + i).isPresent()) seen.add("jon" + i);
+			}
+		}
+
+		int registered = 0;
+		for (Future<Boolean> registration : registrations) {
+			if (registration.get()) registered++;
+		}
+		executorService.shutdown();
+		assertEquals(1, registered);
+		assertEquals(1, registry.size());
+		for (String userName : seen) {
+			assertSame(registry.findById(userId).orElseThrow(), registry.findByName(userName).orElseThrow());
+		}
+	}
+
+	@Test
+	public void parallelStreamVisitsEveryUserOnce() {
+		UserRegistry registry = new UserRegistry(16);
+		Set<UUID> expected = new HashSet<>();
+		for (int i = 0; i < 10_000; i++) {
+			User user = newUser("user" + i);
+			registry.register(user);
+			expected.add(user.getUserId());
+		}
+
+		List<UUID> visited = registry.parallelStream().map(User::getUserId).collect(Collectors.toList());
+		int inShards = 0;
+		for (int i = 0; i < registry.getShardCount(); i++) {
+			inShards += registry.shard(i).size();
+		}
+
+		assertEquals(10_000, visited.size());
+		assertEquals(expected, new HashSet<>(visited));
+		assertEquals(10_000, inShards);
+	}
+
+	private static User newUser(String userName) {
+		return new User(UUID.randomUUID(), userName, "000", userName + "@tourGuide.com");
+	}
+
+}
@@ -0,0 +1,155 @@
+package tourGuide;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import tourGuide.concurrent.UserWorkQueue;
+import tourGuide.concurrent.WorkQueuePolicy;
+import tourGuide.metrics.TourGuideMetrics;
+
+public class TestUserWorkQueue {
+
+	private final UUID jon = UUID.randomUUID();
+	private final UUID jane = UUID.randomUUID();
+
+	@Test
+	public void coalesceDropsTasksOfAUserAlreadyWaiting() throws InterruptedException {
+		ExecutorService executorService = Executors.newSingleThreadExecutor();
+		UserWorkQueue queue = new UserWorkQueue("test", executorService, 10, WorkQueuePolicy.COALESCE);
+		CountDownLatch release = blockExecutor(queue);
+		List<String> runs = new CopyOnWriteArrayList<>();
+
+		queue.submit(jon, () -> runs.add("jon"));
+		queue.submit(jon, () -> runs.add("jon again"));
+		queue.submit(jane, () -> runs.add("jane"));
+		release.countDown();
+
+		awaitTermination(executorService);
+		assertEquals(List.of("jon", "jane"), runs);
+		assertEquals(1, queue.getCoalescedCount());
+		assertEquals(0, queue.getDepth());
+	}
+
+	@Test
+	public void dropOldestPerUserReplacesTheWaitingTaskWhenFull() throws InterruptedException {
+		ExecutorService executorService = Executors.newSingleThreadExecutor();
+		UserWorkQueue queue = new UserWorkQueue("test", executorService, 2, WorkQueuePolicy.DROP_OLDEST_PER_USER);
+		CountDownLatch release = blockExecutor(queue);
+		List<String> runs = new CopyOnWriteArrayList<>();
+
+		assertTrue(queue.submit(jon, () -> runs.add("jon")));
+		assertTrue(queue.submit(jon, () -> runs.add("jon newer")));
+		assertFalse(queue.submit(jane, () -> runs.add("jane")));
+		assertEquals(2, queue.getDepth());
+		release.countDown();
+
+		awaitTermination(executorService);
+		assertEquals(List.of("jon newer"), runs);
+		assertEquals(1, queue.getDroppedCount());
+		assertEquals(1, queue.getRejectedCount());
+	}
+
+	@Test
+	public void blockKeepsTheProducerWaitingWhenFull() throws Exception {
+		ExecutorService executorService = Executors.newSingleThreadExecutor();
+		UserWorkQueue queue = new UserWorkQueue("test", executorService, 1, WorkQueuePolicy.BLOCK);
+		CountDownLatch release = blockExecutor(queue);
+
+		Future<Boolean> blocked = Executors.newVirtualThreadPerTaskExecutor().submit(() -> queue.submit(jon, () -> { }));
+		Thread.sleep(50);
+		assertFalse(blocked.isDone());
+		release.countDown();
+
+		assertTrue(blocked.get(10, TimeUnit.SECONDS));
+		awaitTermination(executorService);
+	}
+
+	@Test
+	public void offerRefusesInsteadOfWaitingWhenFull() throws Exception {
+		ExecutorService executorService = Executors.newSingleThreadExecutor();
+		UserWorkQueue queue = new UserWorkQueue("test", executorService, 1, WorkQueuePolicy.COALESCE);
+		CountDownLatch release = blockExecutor(queue);
+
+		assertFalse(queue.offer(jon, () -> { }));
+		release.countDown();
+
+		awaitTermination(executorService);
+		assertEquals(1, queue.getRejectedCount());
+		assertEquals(0, queue.getDepth());
+	}
+
+	@Test
+	public void concurrentSubmitsOfAUserKeepOneWaitingTask() throws Exception {
+		for (WorkQueuePolicy policy : List.of(WorkQueuePolicy.COALESCE, WorkQueuePolicy.DROP_OLDEST_PER_USER)) {
+			ExecutorService executorService = Executors.newSingleThreadExecutor();
+			UserWorkQueue queue = new UserWorkQueue("test", executorService, 100, policy);
+			CountDownLatch release = blockExecutor(queue);
+			AtomicInteger runs = new AtomicInteger();
+
+			ExecutorService producers = Executors.newFixedThreadPool(8);
+			CountDownLatch start = new CountDownLatch(1);
+			for (int i = 0; i < 64; i++) {
+				producers.submit(() -> {
+					start.await();
+					return queue.submit(jon, runs::incrementAndGet);
+				});
+			}
+			start.countDown();
+			awaitTermination(producers);
+			assertEquals(policy.name(), 2, queue.getDepth());
+			release.countDown();
+
+			awaitTermination(executorService);
+			assertEquals(policy.name(), 1, runs.get());
+			assertEquals(policy.name(), 63, queue.getCoalescedCount() + queue.getDroppedCount());
+		}
+	}
+
+	@Test
+	public void theNextQueueGetsItsOwnGauges() throws InterruptedException {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		Metrics.addRegistry(registry);
+		ExecutorService executorService = Executors.newSingleThreadExecutor();
+		try {
+			UserWorkQueue first = new UserWorkQueue("metered", executorService, 4, WorkQueuePolicy.BLOCK);
+			first.unregisterMeters();
+			UserWorkQueue second = new UserWorkQueue("metered", executorService, 4, WorkQueuePolicy.BLOCK);
+			CountDownLatch release = blockExecutor(second);
+
+			assertEquals(1, registry.get(TourGuideMetrics.WORK_QUEUE_DEPTH).tag("queue", "metered").gauge().value(), 0);
+			release.countDown();
+			second.unregisterMeters();
+			assertNull(registry.find(TourGuideMetrics.WORK_QUEUE_DEPTH).tag("queue", "metered").gauge());
+		} finally {
+			Metrics.removeRegistry(registry);
+			awaitTermination(executorService);
+		}
+	}
+
+	private CountDownLatch blockExecutor(UserWorkQueue queue) {
+		CountDownLatch release = new CountDownLatch(1);
+		queue.submit(UUID.randomUUID(), () -> {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		return release;
+	}
+
+	private static void awaitTermination(ExecutorService executorService) throws InterruptedException {
+		executorService.shutdown();
+		assertTrue(executorService.awaitTermination(10, TimeUnit.SECONDS));
+	}
+
+}